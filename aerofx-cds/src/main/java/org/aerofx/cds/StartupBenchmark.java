@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.cds;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Launches the {@link StartupProbe} repeatedly with and without the CDS archive
+ * and reports the median time from process launch to the first styled frame.
+ * <p>
+ * Arguments: <code>java-executable archive-file [runs]</code>
+ * </p>
+ * Downstream applications can reuse it by running their own probe class with the same recipe.
+ */
+public class StartupBenchmark {
+
+    public static void main(String... args) throws Exception {
+        if(args.length < 2) {
+            System.err.println("Usage: StartupBenchmark <java> <archive> [runs]");
+            System.exit(1);
+        }
+        String java = args[0];
+        File archive = new File(args[1]);
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        if(!archive.isFile())
+            throw new IllegalArgumentException("CDS archive not found: " + archive);
+
+        // One untimed launch each to settle the file system cache
+        launch(java, null);
+        launch(java, archive);
+
+        long[][] without = new long[runs][];
+        long[][] with = new long[runs][];
+        for(int i = 0; i < runs; i++) {
+            without[i] = launch(java, null);
+            with[i] = launch(java, archive);
+        }
+
+        System.out.printf("Launch to first styled frame, median of %d runs%n", runs);
+        System.out.printf("                   process    in JVM%n");
+        System.out.printf("  without archive: %5d ms  %5d ms%n", median(without, 0), median(without, 1));
+        System.out.printf("  with archive:    %5d ms  %5d ms%n", median(with, 0), median(with, 1));
+    }
+
+    /**
+     * Runs the probe in a new JVM
+     * @param archive CDS archive to be used, null for the default JVM setup
+     * @return Milliseconds from launching the process and from JVM start to the first styled frame
+     */
+    private static long[] launch(String java, File archive) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(Arrays.asList(java));
+        if(archive != null) {
+            // Fails instead of silently running without the archive if it cannot be used
+            command.add("-Xshare:on");
+            command.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+        }
+        command.add("-classpath");
+        command.add(System.getProperty("java.class.path"));
+        command.add(StartupProbe.class.getName());
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long[] result = null;
+        try(BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = in.readLine()) != null) {
+                if(result == null && line.startsWith(StartupProbe.FIRST_FRAME)) {
+                    long processMillis = (System.nanoTime() - start) / 1_000_000L;
+                    result = new long[] { processMillis, Long.parseLong(line.substring(StartupProbe.FIRST_FRAME.length())) };
+                }
+            }
+        }
+        if(process.waitFor() != 0 || result == null)
+            throw new IllegalStateException("StartupProbe failed: " + command);
+        return result;
+    }
+
+    private static long median(long[][] results, int column) {
+        long[] values = new long[results.length];
+        for(int i = 0; i < results.length; i++)
+            values[i] = results[i][column];
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+}
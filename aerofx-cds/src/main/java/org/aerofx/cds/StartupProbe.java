@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.cds;
+
+import com.sun.javafx.tk.TKPulseListener;
+import com.sun.javafx.tk.Toolkit;
+import org.aerofx.AeroFX;
+import org.aerofx.demo.SystemSettingsDemo;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * A representative AeroFX application that exits as soon as its first styled frame is ready.
+ * It loads the SystemSettingsDemo dialog with warm-up, lazy GroupBox styling and direct skin installation,
+ * and prints the milliseconds since JVM start prefixed by {@link #FIRST_FRAME}.
+ * Used both to record the class list for the CDS archive and as subject of the {@link StartupBenchmark}.
+ */
+public class StartupProbe extends Application {
+    /**
+     * Prefix of the line that reports the time to the first styled frame
+     */
+    public static final String FIRST_FRAME = "AEROFX_FIRST_FRAME_MS=";
+
+    private TKPulseListener firstFrameListener;
+
+    @Override
+    public void init() throws Exception {
+        AeroFX.warmUp().join();
+    }
+
+    @Override
+    public void start(Stage primaryStage) throws Exception {
+        Parent root = FXMLLoader.load(SystemSettingsDemo.class.getResource("SystemSettingsDemo.fxml"));
+        Scene scene = new Scene(root, 402, 446);
+        AeroFX.style();
+        AeroFX.styleAllAsGroupBox(root, true);
+        AeroFX.installSkins(root);
+
+        // Runs after CSS and layout of the first pulse, the frame is then handed to the renderer
+        firstFrameListener = () -> {
+            Toolkit.getToolkit().removePostSceneTkPulseListener(firstFrameListener);
+            long uptime = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            System.out.println(FIRST_FRAME + uptime);
+            Platform.exit();
+        };
+        Toolkit.getToolkit().addPostSceneTkPulseListener(firstFrameListener);
+
+        primaryStage.setScene(scene);
+        primaryStage.show();
+    }
+
+    public static void main(String... args) { launch(args); }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.demo;
+
+import org.aerofx.AeroFX;
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Group;
+import javafx.scene.Scene;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.ImagePattern;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.StrokeType;
+import javafx.stage.Stage;
+
+import java.util.List;
+
+/**
+ * Compares the rendering cost of the dotted focus border drawn as dashed stroke
+ * with the tiled pattern used by win7.css.
+ * A grid of focus rectangles is resized on every frame, as on a resize or focus move,
+ * and the frame rate is measured for each approach. The number of rectangles can be passed as first argument.
+ * Animations and rendering run unthrottled, so the frame rate reflects the rendering cost.
+ */
+public class FocusRenderingBenchmark extends Application {
+    private static final long MEASURE_NANOS = 5_000_000_000L;
+    private static final int COLUMNS = 40;
+
+    private Rectangle[] rects;
+    private Paint pattern;
+    private int phase;
+    private long phaseStart;
+    private int frames;
+    private double dashedFps;
+
+    @Override
+    public void start(Stage primaryStage) throws Exception {
+        List<String> args = getParameters().getUnnamed();
+        int count = args.isEmpty() ? 2000 : Integer.parseInt(args.get(0));
+        pattern = new ImagePattern(new Image(AeroFX.class.getResource("focus-dot.png").toExternalForm()), 0, 0, 2, 2, false);
+
+        Group root = new Group();
+        rects = new Rectangle[count];
+        for(int i = 0; i < count; i++) {
+            Rectangle r = new Rectangle(0, 0, Color.TRANSPARENT);
+            r.setStrokeType(StrokeType.INSIDE);
+            r.setStrokeWidth(1);
+            r.setX((i % COLUMNS) * 30);
+            r.setY((i / COLUMNS) * 20);
+            rects[i] = r;
+            root.getChildren().add(r);
+        }
+        useDashedStroke();
+
+        primaryStage.setScene(new Scene(root, COLUMNS * 30, 800));
+        primaryStage.show();
+
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                double grow = (now / 1_000_000L) % 8;
+                for(Rectangle r : rects) {
+                    r.setWidth(20 + grow);
+                    r.setHeight(12 + grow);
+                }
+                if(phaseStart == 0) {
+                    phaseStart = now;
+                    return;
+                }
+                frames++;
+                if(now - phaseStart >= MEASURE_NANOS) {
+                    double fps = frames * 1e9 / (now - phaseStart);
+                    if(phase == 0) {
+                        dashedFps = fps;
+                        useImagePattern();
+                        phase = 1;
+                        phaseStart = 0;
+                        frames = 0;
+                    } else {
+                        System.out.printf("%d focus borders%n", rects.length);
+                        System.out.printf("  dashed stroke:  %6.1f fps%n", dashedFps);
+                        System.out.printf("  image pattern:  %6.1f fps%n", fps);
+                        stop();
+                        Platform.exit();
+                    }
+                }
+            }
+        }.start();
+    }
+
+    private void useDashedStroke() {
+        for(Rectangle r : rects) {
+            r.setStroke(Color.BLACK);
+            r.getStrokeDashArray().setAll(1.0);
+        }
+    }
+
+    private void useImagePattern() {
+        for(Rectangle r : rects) {
+            r.getStrokeDashArray().clear();
+            r.setStroke(pattern);
+        }
+    }
+
+    public static void main(String... args) {
+        System.setProperty("javafx.animation.fullspeed", "true");
+        System.setProperty("prism.vsync", "false");
+        launch(args);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.demo;
+
+import org.aerofx.AeroFX;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TitledPane;
+import javafx.scene.layout.FlowPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.stage.Stage;
+
+import java.util.List;
+
+/**
+ * Compares the CSS time of a mixed scene with a global and with a scoped AeroFX theme.
+ * The scene consists of a small Aero dialog next to a large embedded component that should keep the default look.
+ * Each run builds new scenes and times their first CSS pass, in three modes:
+ * <ul>
+ *     <li><code>AeroFX.style()</code>: the whole scene is matched against win7.css and gets Aero skins</li>
+ *     <li>Separate scenes: the dialog is a Scene styled with <code>AeroFX.style(Scene)</code>, the component a Scene with the default theme.
+ *     This is the baseline, each part is only matched against its own theme</li>
+ *     <li><code>AeroFX.style(Parent)</code>: one scene with the default theme, only the dialog is styled with AeroFX</li>
+ * </ul>
+ * The embedded component uses the default theme in the last two modes, so their difference is the cost of scoping itself,
+ * while the first mode shows what theming everything costs.
+ * The number of controls in the dialog and in the embedded component can be passed as arguments.
+ */
+public class ScopedThemeBenchmark extends Application {
+    private static final int WARMUP_RUNS = 5;
+    private static final int RUNS = 10;
+
+    private enum Mode { GLOBAL, SEPARATE_SCENES, SCOPED }
+
+    @Override
+    public void start(Stage primaryStage) throws Exception {
+        List<String> args = getParameters().getUnnamed();
+        int themed = args.size() > 0 ? Integer.parseInt(args.get(0)) : 200;
+        int embedded = args.size() > 1 ? Integer.parseInt(args.get(1)) : 4000;
+
+        AeroFX.style();
+        long global = measure(themed, embedded, Mode.GLOBAL);
+
+        Application.setUserAgentStylesheet(null);
+        // Keeps win7.css referenced, so it is not parsed again for every run
+        Pane anchor = new Pane();
+        AeroFX.style(anchor);
+        new Scene(anchor);
+        anchor.applyCss();
+        long separate = measure(themed, embedded, Mode.SEPARATE_SCENES);
+        long scoped = measure(themed, embedded, Mode.SCOPED);
+
+        System.out.printf("%d themed and %d embedded controls, average over %d runs%n", themed, embedded, RUNS);
+        System.out.printf("  AeroFX.style():                    %8.2f ms%n", global / RUNS / 1e6);
+        System.out.printf("  Separate scenes, style(Scene):     %8.2f ms%n", separate / RUNS / 1e6);
+        System.out.printf("  AeroFX.style(Parent):              %8.2f ms%n", scoped / RUNS / 1e6);
+        Platform.exit();
+    }
+
+    /**
+     * Warms up and measures one mode
+     * @return Total elapsed time of the measured runs in nanoseconds
+     */
+    private long measure(int themed, int embedded, Mode mode) {
+        for(int i = 0; i < WARMUP_RUNS; i++) {
+            run(themed, embedded, mode);
+        }
+        long total = 0;
+        for(int i = 0; i < RUNS; i++) {
+            total += run(themed, embedded, mode);
+        }
+        return total;
+    }
+
+    /**
+     * Builds the dialog and the component and measures their first CSS pass
+     * @return Elapsed time in nanoseconds
+     */
+    private long run(int themed, int embedded, Mode mode) {
+        Pane dialog = createControls(themed, true);
+        Pane component = createControls(embedded, false);
+        if(mode == Mode.SEPARATE_SCENES) {
+            Scene dialogScene = new Scene(dialog, 400, 800);
+            new Scene(component, 800, 800);
+            long start = System.nanoTime();
+            AeroFX.style(dialogScene);
+            dialog.applyCss();
+            component.applyCss();
+            return System.nanoTime() - start;
+        }
+
+        HBox root = new HBox(dialog, component);
+        new Scene(root, 1200, 800);
+        long start = System.nanoTime();
+        if(mode == Mode.SCOPED)
+            AeroFX.style(dialog);
+        root.applyCss();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Creates a pane with the given number of controls, with GroupBoxes if it is the Aero dialog
+     */
+    private Pane createControls(int controls, boolean groupBoxes) {
+        FlowPane pane = new FlowPane();
+        for(int i = 0; i < controls; i++) {
+            switch(i % 4) {
+                case 0:
+                    pane.getChildren().add(new Button("Button " + i));
+                    break;
+                case 1:
+                    pane.getChildren().add(new CheckBox("CheckBox " + i));
+                    break;
+                case 2:
+                    pane.getChildren().add(new Label("Label " + i));
+                    break;
+                default:
+                    if(groupBoxes) {
+                        TitledPane tp = new TitledPane("GroupBox " + i, null);
+                        AeroFX.styleGroupBox(tp);
+                        pane.getChildren().add(tp);
+                    } else {
+                        pane.getChildren().add(new TextField("TextField " + i));
+                    }
+            }
+        }
+        return pane;
+    }
+
+    public static void main(String... args) { launch(args); }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.demo;
+
+import org.aerofx.AeroFX;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.RadioButton;
+import javafx.scene.control.TitledPane;
+import javafx.scene.control.ToggleGroup;
+import javafx.scene.layout.FlowPane;
+import javafx.scene.layout.Pane;
+import javafx.stage.Stage;
+
+import java.util.List;
+
+/**
+ * Measures the cost of creating the Aero skins on a screen with thousands of controls.
+ * Each run builds a new scene and times its first CSS pass, once with skins loaded through <code>-fx-skin</code>
+ * and once with skins installed by <code>AeroFX.installSkins()</code>.
+ * The number of controls can be passed as first argument.
+ */
+public class SkinCreationBenchmark extends Application {
+    private static final int WARMUP_RUNS = 5;
+    private static final int RUNS = 10;
+
+    @Override
+    public void start(Stage primaryStage) throws Exception {
+        List<String> args = getParameters().getUnnamed();
+        int controls = args.isEmpty() ? 4000 : Integer.parseInt(args.get(0));
+        AeroFX.style();
+
+        for(int i = 0; i < WARMUP_RUNS; i++) {
+            run(controls, false);
+            run(controls, true);
+        }
+
+        long css = 0;
+        long registry = 0;
+        for(int i = 0; i < RUNS; i++) {
+            css += run(controls, false);
+            registry += run(controls, true);
+        }
+        System.out.printf("%d controls, average over %d runs%n", controls, RUNS);
+        System.out.printf("  -fx-skin lookup:   %8.2f ms%n", css / RUNS / 1e6);
+        System.out.printf("  installSkins():    %8.2f ms%n", registry / RUNS / 1e6);
+        Platform.exit();
+    }
+
+    /**
+     * Builds a scene and measures skin installation plus the first CSS pass
+     * @return Elapsed time in nanoseconds
+     */
+    private long run(int controls, boolean installSkins) {
+        Pane root = createControls(controls);
+        new Scene(root, 800, 600);
+        long start = System.nanoTime();
+        if(installSkins)
+            AeroFX.installSkins(root);
+        root.applyCss();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Creates a pane with the given number of Buttons, CheckBoxes, RadioButtons and GroupBoxes
+     */
+    private Pane createControls(int controls) {
+        FlowPane root = new FlowPane();
+        ToggleGroup group = new ToggleGroup();
+        for(int i = 0; i < controls; i++) {
+            switch(i % 4) {
+                case 0:
+                    root.getChildren().add(new Button("Button " + i));
+                    break;
+                case 1:
+                    root.getChildren().add(new CheckBox("CheckBox " + i));
+                    break;
+                case 2:
+                    RadioButton rb = new RadioButton("RadioButton " + i);
+                    rb.setToggleGroup(group);
+                    root.getChildren().add(rb);
+                    break;
+                default:
+                    TitledPane tp = new TitledPane("GroupBox " + i, null);
+                    AeroFX.styleGroupBox(tp);
+                    root.getChildren().add(tp);
+            }
+        }
+        return root;
+    }
+
+    public static void main(String... args) { launch(args); }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.demo;
+
+import com.sun.javafx.tk.Toolkit;
+import org.aerofx.AeroFX;
+import org.aerofx.util.AnimationScheduler;
+import org.aerofx.util.ThrottledProgress;
+import javafx.animation.AnimationTimer;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Application;
+import javafx.css.PseudoClass;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Control;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.RadioButton;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TitledPane;
+import javafx.scene.control.ToggleGroup;
+import javafx.scene.layout.FlowPane;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Stress test with a configurable number of Aero controls, GroupBoxes and tabs.
+ * A script changes focus, hover and selection in a fixed interval, a worker thread updates the progress bars,
+ * while a HUD shows FPS, pulse time, CSS pass time, running and degraded animations and heap use.
+ * <p>
+ * Parameters (all optional):
+ * <ul>
+ *     <li><code>--controls=2000</code> - Number of controls over all tabs</li>
+ *     <li><code>--groups=10</code> - Number of GroupBoxes per tab</li>
+ *     <li><code>--tabs=5</code> - Number of tabs</li>
+ *     <li><code>--interval=50</code> - Milliseconds between two scripted changes</li>
+ *     <li><code>--max-animations=16</code> - Number of animations the AnimationScheduler lets run at once</li>
+ *     <li><code>--install-skins</code> - Install the skins through <code>AeroFX.installSkins()</code></li>
+ *     <li><code>--chrome-cache</code> - Render buttons from the shared chrome cache</li>
+ * </ul>
+ * </p>
+ */
+public class StressDemo extends Application {
+    private static final PseudoClass HOVER = PseudoClass.getPseudoClass("hover");
+
+    private final Random random = new Random(42);
+    private final List<Button> buttons = new ArrayList<>();
+    private final List<CheckBox> checkBoxes = new ArrayList<>();
+    private final List<RadioButton> radioButtons = new ArrayList<>();
+    private final List<Control> controls = new ArrayList<>();
+    private final List<ThrottledProgress> progressBars = new ArrayList<>();
+
+    private TabPane tabPane;
+    private Control hovered;
+    private int step;
+
+    private long pulseStart;
+    private long pulseNanos;
+    private long cssNanos;
+    private int frames;
+    private long lastHudUpdate;
+
+    @Override
+    public void start(Stage primaryStage) throws Exception {
+        Map<String, String> params = getParameters().getNamed();
+        int controlCount = intParameter("controls", 2000);
+        int groups = intParameter("groups", 10);
+        int tabs = intParameter("tabs", 5);
+        int interval = intParameter("interval", 50);
+        AnimationScheduler.getInstance().setMaxConcurrent(intParameter("max-animations", 16));
+
+        AeroFX.setButtonChromeCached(getParameters().getUnnamed().contains("--chrome-cache"));
+        AeroFX.style();
+
+        tabPane = createTabs(tabs, groups, Math.max(1, controlCount / (tabs * groups)));
+
+        Label hud = new Label();
+        hud.setMouseTransparent(true);
+        hud.setPadding(new Insets(4));
+        hud.setStyle("-fx-background-color: rgba(0,0,0,0.7); -fx-text-fill: white; -fx-font-family: monospace;");
+        StackPane.setAlignment(hud, Pos.TOP_RIGHT);
+
+        StackPane root = new StackPane(tabPane, hud);
+        if(getParameters().getUnnamed().contains("--install-skins"))
+            AeroFX.installSkins(root);
+        primaryStage.setTitle("AeroFX Stress Test " + params);
+        primaryStage.setScene(new Scene(root, 1024, 768));
+
+        Timeline script = new Timeline(new KeyFrame(Duration.millis(interval), e -> runScriptStep(root)));
+        script.setCycleCount(Timeline.INDEFINITE);
+        script.play();
+
+        Thread worker = new Thread(this::updateProgress, "StressDemo progress");
+        worker.setDaemon(true);
+        worker.start();
+
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pulseStart = System.nanoTime();
+                frames++;
+                if(now - lastHudUpdate >= 1_000_000_000L) {
+                    Runtime rt = Runtime.getRuntime();
+                    hud.setText(String.format(
+                            "FPS:        %5.1f%nPulse:      %5.2f ms%nCSS pass:   %5.2f ms%nAnimations: %5d%nDegraded:   %5d%nHeap:       %5d MB",
+                            frames * 1e9 / (now - lastHudUpdate), pulseNanos / 1e6, cssNanos / 1e6,
+                            AnimationScheduler.getInstance().getRunningCount(), AnimationScheduler.getInstance().getDegradedCount(),
+                            (rt.totalMemory() - rt.freeMemory()) / (1024 * 1024)));
+                    frames = 0;
+                    lastHudUpdate = now;
+                }
+            }
+        }.start();
+        // Called after CSS and layout of all scenes, so the difference covers the whole pulse except rendering
+        Toolkit.getToolkit().addPostSceneTkPulseListener(() -> pulseNanos = System.nanoTime() - pulseStart);
+
+        primaryStage.show();
+    }
+
+    /**
+     * Moves focus, hover and selection to random controls, switches the tab every 40 steps
+     * and measures the CSS pass for these changes
+     */
+    private void runScriptStep(Parent root) {
+        step++;
+        if(step % 40 == 0)
+            tabPane.getSelectionModel().select((tabPane.getSelectionModel().getSelectedIndex() + 1) % tabPane.getTabs().size());
+        if(!buttons.isEmpty())
+            buttons.get(random.nextInt(buttons.size())).requestFocus();
+        if(!checkBoxes.isEmpty()) {
+            CheckBox cb = checkBoxes.get(random.nextInt(checkBoxes.size()));
+            cb.setSelected(!cb.isSelected());
+        }
+        if(!radioButtons.isEmpty())
+            radioButtons.get(random.nextInt(radioButtons.size())).setSelected(true);
+        if(hovered != null)
+            hovered.pseudoClassStateChanged(HOVER, false);
+        hovered = controls.get(random.nextInt(controls.size()));
+        hovered.pseudoClassStateChanged(HOVER, true);
+
+        long start = System.nanoTime();
+        root.applyCss();
+        cssNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Reports progress for all bars far more often than the pulse rate, like a busy batch job monitor
+     */
+    private void updateProgress() {
+        double progress = 0;
+        while(true) {
+            progress = progress >= 1 ? 0 : progress + 0.001;
+            for(int i = 0; i < progressBars.size(); i++) {
+                progressBars.get(i).set((progress + i * 0.01) % 1);
+            }
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private TabPane createTabs(int tabs, int groups, int controlsPerGroup) {
+        TabPane pane = new TabPane();
+        for(int t = 0; t < tabs; t++) {
+            FlowPane page = new FlowPane(8, 8);
+            page.setPadding(new Insets(8));
+            for(int g = 0; g < groups; g++) {
+                page.getChildren().add(createGroup("Group " + t + "." + g, controlsPerGroup));
+            }
+            ScrollPane scroll = new ScrollPane(page);
+            scroll.setFitToWidth(true);
+            pane.getTabs().add(new Tab("Tab " + t, scroll));
+        }
+        return pane;
+    }
+
+    private TitledPane createGroup(String title, int controlCount) {
+        FlowPane content = new FlowPane(4, 4);
+        content.setPadding(new Insets(12, 6, 6, 6));
+        content.setPrefWrapLength(280);
+        ToggleGroup toggleGroup = new ToggleGroup();
+        for(int i = 0; i < controlCount; i++) {
+            Control c;
+            switch(i % 5) {
+                case 0:
+                    Button b = new Button("Button " + i);
+                    buttons.add(b);
+                    c = b;
+                    break;
+                case 1:
+                    CheckBox cb = new CheckBox("Check " + i);
+                    checkBoxes.add(cb);
+                    c = cb;
+                    break;
+                case 2:
+                    RadioButton rb = new RadioButton("Radio " + i);
+                    rb.setToggleGroup(toggleGroup);
+                    radioButtons.add(rb);
+                    c = rb;
+                    break;
+                case 3:
+                    TextField tf = new TextField("Text " + i);
+                    tf.setPrefColumnCount(6);
+                    c = tf;
+                    break;
+                default:
+                    ProgressBar pb = new ProgressBar(0);
+                    progressBars.add(new ThrottledProgress(pb));
+                    c = pb;
+            }
+            controls.add(c);
+            content.getChildren().add(c);
+        }
+        TitledPane group = new TitledPane(title, content);
+        group.setPrefWidth(300);
+        AeroFX.styleGroupBox(group);
+        return group;
+    }
+
+    private int intParameter(String name, int defaultValue) {
+        String value = getParameters().getNamed().get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public static void main(String... args) { launch(args); }
+}
@@ -50,7 +50,7 @@ public class SystemSettingsDemo extends Application {
         Scene myScene = new Scene(root, 402, 446);
 
         AeroFX.style();
-        AeroFX.styleAllAsGroupBox(root);
+        AeroFX.styleAllAsGroupBox(root, true);
 
         primaryStage.setScene(myScene);
         primaryStage.show();
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.snapshot;
+
+import org.aerofx.demo.SystemSettingsDemo;
+import javafx.application.Platform;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders the demo screens repeatedly with a {@link SnapshotService} and reports the throughput.
+ * The first round is rendered separately, so the reported numbers do not include loading classes and parsing the theme.
+ * <p>
+ * Arguments: <code>[output-directory] [copies] [threads]</code>
+ * </p>
+ */
+public class BatchSnapshot {
+
+    public static void main(String... args) throws Exception {
+        File dir = new File(args.length > 0 ? args[0] : "snapshots");
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        try(SnapshotService service = new SnapshotService(threads)) {
+            double warmUp = service.renderAll(jobs(dir, 1));
+            List<SnapshotJob> jobs = jobs(dir, copies);
+            double throughput = service.renderAll(jobs);
+
+            System.out.printf("First round: %.1f screens/s%n", warmUp);
+            System.out.printf("%d screens with %d threads: %.1f screens/s%n", jobs.size(), threads, throughput);
+            System.out.println("Written to " + dir.getAbsolutePath());
+        } finally {
+            // The FX thread would keep the JVM alive, also when a job failed
+            Platform.exit();
+        }
+    }
+
+    private static List<SnapshotJob> jobs(File dir, int copies){
+        List<SnapshotJob> jobs = new ArrayList<>(copies * 2);
+        for(int i = 0; i < copies; i++) {
+            jobs.add(new SnapshotJob(SystemSettingsDemo.class.getResource("SystemSettingsDemo.fxml"),
+                    new File(dir, "SystemSettingsDemo-" + i + ".png"), 402, 446));
+            jobs.add(new SnapshotJob(SystemSettingsDemo.class.getResource("Tester.fxml"),
+                    new File(dir, "Tester-" + i + ".png"), 500, 300));
+        }
+        return jobs;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.snapshot;
+
+import java.io.File;
+import java.net.URL;
+
+/**
+ * A screen to be rendered by the {@link SnapshotService}: an FXML file, the size of its scene and the PNG file to write.
+ */
+public class SnapshotJob {
+    private final URL fxml;
+    private final File output;
+    private final double width;
+    private final double height;
+    private final boolean groupBoxes;
+
+    /**
+     * Creates a job whose TitledPanes are styled as GroupBoxes
+     * @param fxml The FXML file to load, must not need a controller that requires a window
+     * @param output The PNG file to write
+     * @param width Width of the scene
+     * @param height Height of the scene
+     */
+    public SnapshotJob(URL fxml, File output, double width, double height){
+        this(fxml, output, width, height, true);
+    }
+
+    /**
+     * @param fxml The FXML file to load, must not need a controller that requires a window
+     * @param output The PNG file to write
+     * @param width Width of the scene
+     * @param height Height of the scene
+     * @param groupBoxes true to style all TitledPanes as GroupBoxes
+     */
+    public SnapshotJob(URL fxml, File output, double width, double height, boolean groupBoxes){
+        if(fxml == null)
+            throw new IllegalArgumentException("FXML file not found for " + output);
+        this.fxml = fxml;
+        this.output = output;
+        this.width = width;
+        this.height = height;
+        this.groupBoxes = groupBoxes;
+    }
+
+    public URL getFxml(){
+        return fxml;
+    }
+
+    public File getOutput(){
+        return output;
+    }
+
+    public double getWidth(){
+        return width;
+    }
+
+    public double getHeight(){
+        return height;
+    }
+
+    public boolean isGroupBoxes(){
+        return groupBoxes;
+    }
+}
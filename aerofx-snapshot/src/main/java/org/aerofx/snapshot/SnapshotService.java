@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.snapshot;
+
+import com.sun.javafx.application.PlatformImpl;
+import org.aerofx.AeroFX;
+import javafx.application.Platform;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.image.WritableImage;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders FXML screens styled with AeroFX to PNG files without a display.
+ * <p>
+ * The JavaFX toolkit is started once on the headless Monocle platform with the software pipeline,
+ * and AeroFX is installed once as user agent stylesheet. win7.css is therefore parsed a single time
+ * and its matched styles are shared by the scenes of all jobs.
+ * </p>
+ * <p>
+ * Every job runs through three stages: the FXML is loaded and its GroupBoxes are styled on a loader thread,
+ * CSS, layout and the snapshot run on the JavaFX Application Thread, and the PNG is encoded on an encoder thread.
+ * The JavaFX Application Thread only does the part that JavaFX requires of it, while the other stages of many jobs run in parallel.
+ * </p>
+ */
+public class SnapshotService implements AutoCloseable {
+    private static boolean toolkitStarted;
+
+    private final ExecutorService loaders;
+    private final ExecutorService encoders;
+
+    /**
+     * Creates a service with one loader and one encoder thread per available processor
+     */
+    public SnapshotService(){
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads Number of loader threads and of encoder threads
+     */
+    public SnapshotService(int threads){
+        startToolkit();
+        loaders = Executors.newFixedThreadPool(threads, daemonThreads("AeroFX snapshot loader"));
+        encoders = Executors.newFixedThreadPool(threads, daemonThreads("AeroFX snapshot encoder"));
+    }
+
+    /**
+     * Starts the JavaFX toolkit headless, unless it is already running in this JVM, and styles it with AeroFX.
+     * Platform properties that are already set, e.g. on the command line, are kept
+     */
+    private static synchronized void startToolkit(){
+        if(toolkitStarted)
+            return;
+        setDefault("glass.platform", "Monocle");
+        setDefault("monocle.platform", "Headless");
+        setDefault("prism.order", "sw");
+        setDefault("java.awt.headless", "true");
+
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            PlatformImpl.startup(started::countDown);
+        } catch (IllegalStateException e) {
+            // The toolkit has already been started by the application
+            started.countDown();
+        }
+        try {
+            started.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while starting JavaFX", e);
+        }
+        Platform.setImplicitExit(false);
+        AeroFX.style();
+        toolkitStarted = true;
+    }
+
+    private static void setDefault(String key, String value){
+        if(System.getProperty(key) == null)
+            System.setProperty(key, value);
+    }
+
+    private static ThreadFactory daemonThreads(String name){
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + " " + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Renders a single screen. Can be called from any thread
+     * @param job The screen to render
+     * @return A future that completes with the written file
+     */
+    public CompletableFuture<File> submit(SnapshotJob job){
+        return CompletableFuture.supplyAsync(() -> load(job), loaders)
+                .thenApplyAsync(this::snapshot, Platform::runLater)
+                .thenApplyAsync(image -> write(image, job.getOutput()), encoders);
+    }
+
+    /**
+     * Renders all given screens and waits for them. Must not be called on the JavaFX Application Thread
+     * @param jobs The screens to render
+     * @return The throughput in screens per second
+     */
+    public double renderAll(List<SnapshotJob> jobs){
+        if(Platform.isFxApplicationThread())
+            throw new IllegalStateException("renderAll() would block the JavaFX Application Thread");
+        long start = System.nanoTime();
+        List<CompletableFuture<File>> results = new ArrayList<>(jobs.size());
+        for(SnapshotJob job : jobs) {
+            results.add(submit(job));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[results.size()])).join();
+        return jobs.size() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Loads the FXML into a scene that is not attached to a window, which JavaFX allows on any thread
+     */
+    private Scene load(SnapshotJob job){
+        Parent root;
+        try {
+            root = FXMLLoader.load(job.getFxml());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if(job.isGroupBoxes()) {
+            AeroFX.styleAllAsGroupBox(root);
+        }
+        return new Scene(root, job.getWidth(), job.getHeight());
+    }
+
+    /**
+     * Applies CSS, lays out and renders the scene on the JavaFX Application Thread
+     */
+    private WritableImage snapshot(Scene scene){
+        return scene.snapshot(null);
+    }
+
+    private File write(WritableImage image, File output){
+        try {
+            File dir = output.getAbsoluteFile().getParentFile();
+            if(dir != null && !dir.isDirectory() && !dir.mkdirs())
+                throw new IOException("Cannot create " + dir);
+            ImageIO.write(SwingFXUtils.fromFXImage(image, null), "png", output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output;
+    }
+
+    /**
+     * Stops the loader and encoder threads. The JavaFX toolkit keeps running for other services
+     */
+    @Override
+    public void close(){
+        loaders.shutdown();
+        encoders.shutdown();
+    }
+}
@@ -29,12 +29,45 @@
 
 package org.aerofx;
 
+import com.sun.javafx.css.Stylesheet;
+import com.sun.javafx.css.parser.CSSParser;
 import javafx.application.Application;
+import javafx.beans.value.ChangeListener;
 import javafx.scene.Node;
 import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Accordion;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Control;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.RadioButton;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.control.Skin;
+import javafx.scene.control.SplitPane;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 import javafx.scene.control.TitledPane;
+import javafx.scene.control.ToolBar;
+import javafx.scene.text.Font;
+import javafx.stage.Window;
+import org.aerofx.controls.skin.AeroButtonSkin;
+import org.aerofx.controls.skin.AeroCheckBoxSkin;
+import org.aerofx.controls.skin.AeroGroupBoxSkin;
+import org.aerofx.controls.skin.AeroProgressBarSkin;
+import org.aerofx.controls.skin.AeroRadioButtonSkin;
+import org.aerofx.util.AnimationScheduler;
+import org.aerofx.util.FractionTransition;
+import org.aerofx.util.GradientInterpolator;
+import org.aerofx.util.InterpolationTable;
+import org.aerofx.util.SharedClock;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * <p>
@@ -45,6 +78,10 @@ import javafx.scene.control.TitledPane;
  *         <li>Style your complete application with a Windows 7 look and feel</li>
  *         <li>Style a single TitledPane as a GroupBox</li>
  *         <li>Style all TitledPanes in your application as GroupBoxes</li>
+ *         <li>Install the Aero skins directly, without the reflective <code>-fx-skin</code> lookup</li>
+ *         <li>Preload the theme in the background to speed up the first styled frame</li>
+ *         <li>Style GroupBoxes from any thread, batched on the JavaFX Application Thread</li>
+ *         <li>Prepare and share context menus and tooltips, so they open without delay</li>
  *     </ul>
  *
  *     <p>As of version 0.1-SNAPSHOT, AeroFX can style the following JavaFX-controls:</p>
@@ -57,6 +94,7 @@ import javafx.scene.control.TitledPane;
  *         <li>Hyperlink</li>
  *         <li>TitledPane</li>
  *         <li>TableView</li>
+ *         <li>ProgressBar</li>
  *     </ul>
  *
  *     <h2>Important:</h2>
@@ -64,6 +102,10 @@ import javafx.scene.control.TitledPane;
  *         Please call all AeroFX-functions before calling <code>primaryStage.show()</code>!
  *         After calling show(), AeroFX-calls do not have the desired effect.
  *     </p>
+ *     <p>
+ *         Except for <code>style()</code>, <code>warmUp()</code> and the <code>...Later</code> methods,
+ *         AeroFX has to be used on the JavaFX Application Thread.
+ *     </p>
  *
  *     <h3>Usage examples:</h3>
  *     <p>
@@ -71,6 +113,9 @@ import javafx.scene.control.TitledPane;
  *         <code>AeroFX.stlye();</code>
  *     </p>
  *     <p>
+ *         To style only one window or a part of it, call <code>AeroFX.style(scene)</code> or <code>AeroFX.style(parent)</code> instead
+ *     </p>
+ *     <p>
  *         To style a single TitledPane as a GroupBox, use
  *         <code>AeroFX.styleGroupBox(aTitledPane)</code>
  *     </p>
@@ -78,6 +123,17 @@ import javafx.scene.control.TitledPane;
  *         To style all TitledPanes in your application, call <code>AeroFX.styleAllAsGroupBox(root)</code> with your applications Parent-object
  *
  *     </p>
+ *     <p>
+ *         To style the pages of TabPanes only when they are needed, call <code>AeroFX.styleAllAsGroupBox(root, true)</code>
+ *     </p>
+ *     <p>
+ *         To create the skins of all controls in your application up front, call <code>AeroFX.installSkins(root)</code>
+ *         after styling the GroupBoxes
+ *     </p>
+ *     <p>
+ *         To preload the theme while a splash screen is showing, call <code>AeroFX.warmUp()</code>
+ *         in <code>Application.init()</code> or a <code>Preloader</code> and wait for the returned future before styling
+ *     </p>
  * </p>
  *
  * @author Matthias Meidinger
@@ -89,12 +145,162 @@ public class AeroFX {
     private final static String AERO_CSS_NAME = AeroFX.class.getResource("win7.css").toExternalForm();
 
     /**
-     * Styles an application with AeroFX
+     * Style class of the root of a subtree styled by {@link #style(Parent)}
+     */
+    private final static String AERO_ROOT_CLASS = "aero-root";
+
+    /**
+     * The skin factories used by {@link #installSkins(Parent)}, keyed by control class
+     */
+    private final static Map<Class<?>, Function<Control, Skin<?>>> SKIN_FACTORIES = new ConcurrentHashMap<>();
+
+    /**
+     * The font family set on <code>.root</code> in win7.css
+     */
+    private final static String AERO_FONT_FAMILY = "Segoe UI Semibold";
+
+    /**
+     * The result of the first call to {@link #warmUp()}
+     */
+    private static CompletableFuture<Void> warmUp;
+
+    /**
+     * Whether new button skins render their background from the shared chrome cache
+     */
+    private static volatile boolean buttonChromeCached;
+
+    /**
+     * Default number of nodes that may wait for styling before callers of the <code>...Later</code> methods block
+     */
+    private final static int DEFAULT_STYLE_QUEUE_CAPACITY = 10000;
+
+    /**
+     * Queue behind the <code>...Later</code> methods
+     */
+    private final static StyleQueue STYLE_QUEUE = new StyleQueue(DEFAULT_STYLE_QUEUE_CAPACITY);
+
+    /**
+     * Key in the properties of a Tab whose content has been styled by the lazy mode
+     */
+    private final static String TAB_STYLED_KEY = "aerofx.groupBoxStyled";
+
+    /**
+     * Styles the deferred pages of lazy TabPanes while the application is idle
+     */
+    private final static IdleQueue IDLE_QUEUE = new IdleQueue();
+
+    /**
+     * The pooled context menus and tooltips
+     */
+    private final static PopupPool POPUP_POOL = new PopupPool();
+
+    static {
+        registerSkinFactory(Button.class, AeroButtonSkin::new);
+        registerSkinFactory(CheckBox.class, AeroCheckBoxSkin::new);
+        // AeroRadioButtonSkin needs a ToggleGroup, ungrouped RadioButtons keep their default skin
+        registerSkinFactory(RadioButton.class, b -> b.getToggleGroup() != null ? new AeroRadioButtonSkin(b) : null);
+        registerSkinFactory(TitledPane.class, p -> p.getStyleClass().contains("group-box") ? new AeroGroupBoxSkin(p) : null);
+        registerSkinFactory(ProgressBar.class, AeroProgressBarSkin::new);
+    }
+
+    /**
+     * Styles an application with AeroFX.
+     * Can be called from any thread, JavaFX hands the stylesheet over to the Application Thread
      */
     public static void style(){
         Application.setUserAgentStylesheet(AERO_CSS_NAME);
     }
 
+    /**
+     * Styles a single Scene with AeroFX, other windows keep the default look.
+     * win7.css becomes the user agent stylesheet of the Scene, so it replaces the default theme there
+     * and yields to properties set in code just as with {@link #style()}.
+     * Popups such as context menus and tooltips are windows of their own and may keep the application's theme.
+     * @param scene Scene to be styled
+     */
+    public static void style(Scene scene){
+        scene.setUserAgentStylesheet(AERO_CSS_NAME);
+    }
+
+    /**
+     * Styles only the given subtree with AeroFX. Nodes outside of it are not matched against the Aero selectors
+     * and keep their default skins, which saves CSS time in scenes with large unthemed parts.
+     * The parent gets the style class <code>aero-root</code>, which stands in for <code>.root</code> of win7.css.
+     * <p>
+     * JavaFX has no user agent stylesheet per Parent, so win7.css is added as author stylesheet on top of the default theme.
+     * Unlike with {@link #style()} and {@link #style(Scene)}, the theme therefore overrides fonts, backgrounds and other
+     * properties set in code on the nodes of the subtree; only inline styles set with <code>setStyle</code> take precedence over it.
+     * Popups are windows of their own and may not pick up the theme of the subtree, use {@link #style(Scene)} if they need it.
+     * Do not combine it with {@link #style()}
+     * </p>
+     * @param p Root of the subtree to be styled
+     */
+    public static void style(Parent p){
+        if(!p.getStylesheets().contains(AERO_CSS_NAME)) {
+            p.getStylesheets().add(AERO_CSS_NAME);
+        }
+        if(!p.getStyleClass().contains(AERO_ROOT_CLASS)) {
+            p.getStyleClass().add(AERO_ROOT_CLASS);
+        }
+    }
+
+    /**
+     * Preloads AeroFX on a background thread. This loads and initializes the skin classes
+     * (including the precomputed backgrounds of the button animation), loads the CSS parser
+     * and resolves the theme font (including its fallback on systems without Segoe UI).
+     * Subsequent calls return the same future.
+     * The JavaFX toolkit has to be running, e.g. call this from <code>Application.init()</code>
+     * @return A future that completes when the warm-up is done
+     */
+    public static synchronized CompletableFuture<Void> warmUp(){
+        if(warmUp == null) {
+            warmUp = CompletableFuture.runAsync(AeroFX::preload, r -> {
+                Thread t = new Thread(r, "AeroFX warm-up");
+                t.setDaemon(true);
+                t.start();
+            });
+        }
+        return warmUp;
+    }
+
+    /**
+     * Does the actual work of {@link #warmUp()}
+     */
+    private static void preload(){
+        Class<?>[] classes = { AeroButtonSkin.class, AeroCheckBoxSkin.class, AeroRadioButtonSkin.class,
+                AeroGroupBoxSkin.class, AeroProgressBarSkin.class, FractionTransition.class, GradientInterpolator.class,
+                InterpolationTable.class, SharedClock.class, AnimationScheduler.class,
+                // Only the classes: the shared CSSParser instance is not thread-safe and is used by the FX thread meanwhile
+                CSSParser.class, Stylesheet.class };
+        for(Class<?> c : classes) {
+            try {
+                Class.forName(c.getName(), true, c.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        Font.font(AERO_FONT_FAMILY, 10.5);
+    }
+
+    /**
+     * Enables or disables the cached rendering of button backgrounds.
+     * In this mode, the background of a button is rasterized once per size, state and animation step
+     * and shared by all buttons through <code>ChromeCache.getShared()</code>, whose memory budget can be adjusted there.
+     * Only affects buttons that are skinned afterwards.
+     * @param cached true to render buttons from the cache
+     */
+    public static void setButtonChromeCached(boolean cached){
+        buttonChromeCached = cached;
+    }
+
+    /**
+     * @return Whether new buttons render their background from the chrome cache
+     */
+    public static boolean isButtonChromeCached(){
+        return buttonChromeCached;
+    }
+
     /**
      * Styles a given TitledPane as a Windows-like GroupBox
      * @param p TitledPane to be styled
@@ -109,20 +315,243 @@ public class AeroFX {
      * @param p Parent to look for TitledPanes
      */
     public static void styleAllAsGroupBox(Parent p){
+        styleAllAsGroupBox(p, false);
+    }
+
+    /**
+     * Styles all TitledPanes in the given parent as Windows-like GroupBoxes.
+     * In the lazy mode, only the selected page of a TabPane is styled right away.
+     * Every other page is styled when it gets selected for the first time,
+     * or one page at a time while the application is idle, whichever comes first.
+     * The application counts as idle when no pulse has done noticeable CSS or layout work for a short while.
+     * @param p Parent to look for TitledPanes
+     * @param lazyTabs true to defer the unselected pages of TabPanes
+     */
+    public static void styleAllAsGroupBox(Parent p, boolean lazyTabs){
             for(Node a : p.getChildrenUnmodifiable()){
                 if(a instanceof TitledPane) {
                     styleGroupBox((TitledPane) a);
                 } else if(a instanceof TabPane) {
-                    for(Tab t : ((TabPane)a).getTabs()) {
-                        Node content = t.getContent();
-                        if(content != null && content instanceof Parent) {
-                            styleAllAsGroupBox((Parent) content);
+                    if(lazyTabs) {
+                        styleTabsLazily((TabPane) a);
+                    } else {
+                        for(Tab t : ((TabPane)a).getTabs()) {
+                            Node content = t.getContent();
+                            if(content != null && content instanceof Parent) {
+                                styleAllAsGroupBox((Parent) content);
+                            }
                         }
                     }
                 }
                 else if(a instanceof Parent) {
-                    styleAllAsGroupBox((Parent) a);
+                    styleAllAsGroupBox((Parent) a, lazyTabs);
+                }
+            }
+    }
+
+    /**
+     * Styles the selected page of the TabPane and defers the others
+     * @param tp TabPane whose pages are to be styled
+     */
+    private static void styleTabsLazily(TabPane tp){
+        styleTab(tp.getSelectionModel().getSelectedItem());
+
+        ChangeListener<Tab> selectionListener = (observable, oldValue, newValue) -> styleTab(newValue);
+        tp.getSelectionModel().selectedItemProperty().addListener(selectionListener);
+
+        IDLE_QUEUE.submit(() -> {
+            for(Tab t : tp.getTabs()) {
+                if(!t.getProperties().containsKey(TAB_STYLED_KEY)) {
+                    styleTab(t);
+                    return true;
                 }
             }
+            tp.getSelectionModel().selectedItemProperty().removeListener(selectionListener);
+            return false;
+        });
+    }
+
+    /**
+     * Styles the content of a single Tab once, nested TabPanes are styled lazily as well
+     * @param t Tab to be styled, may be null
+     */
+    private static void styleTab(Tab t){
+        if(t == null || t.getProperties().containsKey(TAB_STYLED_KEY))
+            return;
+        t.getProperties().put(TAB_STYLED_KEY, Boolean.TRUE);
+        Node content = t.getContent();
+        if(content != null && content instanceof Parent) {
+            styleAllAsGroupBox((Parent) content, true);
+        }
+    }
+
+    /**
+     * Styles a given TitledPane as a Windows-like GroupBox. Can be called from any thread,
+     * the styling is done in the batch of the next pulse on the JavaFX Application Thread.
+     * @param p TitledPane to be styled
+     */
+    public static void styleGroupBoxLater(TitledPane p){
+        STYLE_QUEUE.submit(p, StyleQueue.GROUP_BOX);
+    }
+
+    /**
+     * Styles all TitledPanes in the given parent as Windows-like GroupBoxes. Can be called from any thread.
+     * Requests are collected and applied in one batch per pulse on the JavaFX Application Thread;
+     * repeated requests for a parent, or for nodes that a queued parent styles anyway, are only applied once.
+     * Blocks the calling thread while the queue is full.
+     * @param p Parent to look for TitledPanes
+     */
+    public static void styleAllAsGroupBoxLater(Parent p){
+        STYLE_QUEUE.submit(p, StyleQueue.ALL_AS_GROUP_BOX);
+    }
+
+    /**
+     * Sets how many nodes may wait for styling before callers of the <code>...Later</code> methods block
+     * @param capacity Maximum number of queued nodes
+     */
+    public static void setStyleQueueCapacity(int capacity){
+        if(capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+        STYLE_QUEUE.setCapacity(capacity);
+    }
+
+    /**
+     * @return Maximum number of queued nodes
+     */
+    public static int getStyleQueueCapacity(){
+        return STYLE_QUEUE.getCapacity();
+    }
+
+    /**
+     * Prepares the Aero popups for the given window. A context menu, the pooled context menus and the shared tooltip
+     * are shown once outside the visible screen area, so their skins, styles, layout and drop shadow are ready
+     * before the user opens the first one. Menus pooled later are prepared the same way when they are created. Call this after <code>AeroFX.style()</code> and <code>primaryStage.show()</code>
+     * @param owner Window the popups are shown for
+     */
+    public static void prewarmPopups(Window owner){
+        POPUP_POOL.prewarm(owner);
+    }
+
+    /**
+     * Returns a pooled context menu that can be shown for any owner, e.g. the same menu for all cells of a grid.
+     * The menu is created by the factory and styled on the first call for the key,
+     * after {@link #prewarmPopups(Window)} it is also shown once outside the visible screen area.
+     * Keys should identify kinds of menus, not single owners
+     * @param key Identifies the menu
+     * @param factory Creates the menu if it is not pooled yet
+     * @return The pooled context menu
+     */
+    public static ContextMenu getContextMenu(Object key, Supplier<ContextMenu> factory){
+        return POPUP_POOL.getContextMenu(key, factory);
+    }
+
+    /**
+     * Removes a context menu from the pool
+     * @param key Identifies the menu
+     */
+    public static void releaseContextMenu(Object key){
+        POPUP_POOL.releaseContextMenu(key);
+    }
+
+    /**
+     * Installs the shared, prestyled tooltip on a node. Its text is set to the given one when the mouse enters the node
+     * @param node Node that shows the tooltip
+     * @param text Text of the tooltip
+     */
+    public static void installTooltip(Node node, String text){
+        POPUP_POOL.installTooltip(node, text);
+    }
+
+    /**
+     * Removes a tooltip installed by {@link #installTooltip(Node, String)}
+     * @param node Node that shows the tooltip
+     */
+    public static void uninstallTooltip(Node node){
+        POPUP_POOL.uninstallTooltip(node);
+    }
+
+    /**
+     * Registers a factory that creates the skin for the given control type.
+     * The factory is also used for subclasses of the type, unless they have a factory of their own.
+     * It may return null to leave a control to the <code>-fx-skin</code> rule of the stylesheet.
+     * @param type Control class the factory is responsible for
+     * @param factory Function that creates a new skin for a control
+     */
+    public static <C extends Control> void registerSkinFactory(Class<C> type, Function<? super C, ? extends Skin<?>> factory){
+        SKIN_FACTORIES.put(type, c -> factory.apply(type.cast(c)));
+    }
+
+    /**
+     * Installs the registered skins on all controls in the given parent that have no skin yet.
+     * JavaFX does not load a <code>-fx-skin</code> class again if the control already has a skin of that class,
+     * so the reflective lookup of the CSS pass is skipped for these controls.
+     * Controls that are added later are still skinned through the stylesheet.
+     * Besides plain Parents, the contents of TitledPanes, TabPanes, ScrollPanes, SplitPanes, ToolBars and Accordions are searched,
+     * which have no children before they are skinned. Controls inside other unskinned containers keep the <code>-fx-skin</code> lookup.
+     * Call this before the first CSS pass, i.e. before <code>primaryStage.show()</code>
+     * @param p Parent to look for controls
+     */
+    public static void installSkins(Parent p){
+        for(Node a : p.getChildrenUnmodifiable()) {
+            installSkin(a);
+        }
+    }
+
+    /**
+     * Installs the skin of a single node and descends into its children
+     * @param n Node to be skinned
+     */
+    private static void installSkin(Node n){
+        if(n instanceof Control && ((Control) n).getSkin() == null) {
+            Function<Control, Skin<?>> factory = findSkinFactory(n.getClass());
+            if(factory != null) {
+                Skin<?> skin = factory.apply((Control) n);
+                if(skin != null)
+                    ((Control) n).setSkin(skin);
+            }
+        }
+
+        if(n instanceof TitledPane) {
+            Node content = ((TitledPane) n).getContent();
+            if(content != null)
+                installSkin(content);
+        } else if(n instanceof TabPane) {
+            for(Tab t : ((TabPane) n).getTabs()) {
+                if(t.getContent() != null)
+                    installSkin(t.getContent());
+            }
+        } else if(n instanceof ScrollPane) {
+            Node content = ((ScrollPane) n).getContent();
+            if(content != null)
+                installSkin(content);
+        } else if(n instanceof SplitPane) {
+            for(Node item : ((SplitPane) n).getItems()) {
+                installSkin(item);
+            }
+        } else if(n instanceof ToolBar) {
+            for(Node item : ((ToolBar) n).getItems()) {
+                installSkin(item);
+            }
+        } else if(n instanceof Accordion) {
+            for(TitledPane pane : ((Accordion) n).getPanes()) {
+                installSkin(pane);
+            }
+        } else if(n instanceof Parent) {
+            installSkins((Parent) n);
+        }
+    }
+
+    /**
+     * Looks up the skin factory of a control class or its nearest registered superclass
+     * @param type Class of the control
+     * @return The factory, or null if none is registered
+     */
+    private static Function<Control, Skin<?>> findSkinFactory(Class<?> type){
+        for(Class<?> c = type; c != null && c != Control.class; c = c.getSuperclass()) {
+            Function<Control, Skin<?>> factory = SKIN_FACTORIES.get(c);
+            if(factory != null)
+                return factory;
+        }
+        return null;
     }
 }
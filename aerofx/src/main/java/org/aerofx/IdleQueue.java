@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx;
+
+import com.sun.javafx.tk.TKPulseListener;
+import com.sun.javafx.tk.Toolkit;
+import javafx.application.Platform;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs deferred work on the JavaFX Application Thread while the application is idle.
+ * The application counts as idle when no pulse has done noticeable scene work (CSS, layout) for {@link #IDLE_DELAY_MS}.
+ * Each idle period runs one step of one task, the work caused by that step then delays the next one.
+ * The queue does not request pulses itself, it checks from a timer thread whether it is idle.
+ * Only to be used on the JavaFX Application Thread.
+ */
+final class IdleQueue {
+    /**
+     * Time without a busy pulse after which the application counts as idle
+     */
+    private static final long IDLE_DELAY_MS = 100;
+
+    /**
+     * A pulse whose scene pass takes longer than this counts as busy
+     */
+    private static final long BUSY_PULSE_NANOS = 1_000_000L;
+
+    private final Deque<BooleanSupplier> tasks = new ArrayDeque<>();
+    private ScheduledExecutorService timer;
+    private ScheduledFuture<?> check;
+
+    private long pulseStart;
+    private long lastBusy;
+
+    private final TKPulseListener pulseStartListener = () -> pulseStart = System.nanoTime();
+    private final TKPulseListener pulseEndListener = () -> {
+        long end = System.nanoTime();
+        if (end - pulseStart > BUSY_PULSE_NANOS)
+            lastBusy = end;
+    };
+    private final Runnable runIfIdle = this::runIfIdle;
+
+    /**
+     * Queues a task that does one step of its work per idle period
+     * @param task Does one step and returns whether more steps are left
+     */
+    void submit(BooleanSupplier task) {
+        tasks.add(task);
+        if (check == null) {
+            if (timer == null) {
+                timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "AeroFX idle check");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            lastBusy = System.nanoTime();
+            // Stage pulse listeners run before the scenes do their CSS and layout, scene listeners in no defined order
+            Toolkit.getToolkit().addStageTkPulseListener(pulseStartListener);
+            Toolkit.getToolkit().addPostSceneTkPulseListener(pulseEndListener);
+            check = timer.scheduleWithFixedDelay(() -> Platform.runLater(runIfIdle),
+                    IDLE_DELAY_MS / 2, IDLE_DELAY_MS / 2, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void runIfIdle() {
+        if (check == null || TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastBusy) < IDLE_DELAY_MS)
+            return;
+        BooleanSupplier task = tasks.poll();
+        if (task != null && task.getAsBoolean())
+            tasks.add(task);
+        // Steps that do not cause a pulse still wait for the next idle period
+        lastBusy = System.nanoTime();
+        if (tasks.isEmpty())
+            stop();
+    }
+
+    private void stop() {
+        check.cancel(false);
+        check = null;
+        Toolkit.getToolkit().removeStageTkPulseListener(pulseStartListener);
+        Toolkit.getToolkit().removePostSceneTkPulseListener(pulseEndListener);
+    }
+}
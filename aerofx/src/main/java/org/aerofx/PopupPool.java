@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx;
+
+import javafx.animation.AnimationTimer;
+import javafx.event.EventHandler;
+import javafx.scene.Node;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.PopupControl;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import javafx.stage.Window;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Keeps styled popups around so they can be shown for any owner without being created and styled again.
+ * Context menus are pooled per key, tooltips share a single instance whose text is switched on mouse enter.
+ * Only to be used on the JavaFX Application Thread.
+ */
+final class PopupPool {
+    /**
+     * Position far outside of every screen, used to show popups once without them being seen
+     */
+    private static final double OFFSCREEN = -10000;
+
+    /**
+     * Number of pulses a warm-up popup stays open, so it is rendered including its effects
+     */
+    private static final int WARM_UP_PULSES = 2;
+
+    /**
+     * Key in the properties of a node that holds its tooltip text
+     */
+    private static final String TOOLTIP_TEXT_KEY = "aerofx.tooltipText";
+
+    private final Map<Object, ContextMenu> contextMenus = new HashMap<>();
+
+    /**
+     * Pooled context menus that have been shown offscreen once
+     */
+    private final Set<ContextMenu> warmedMenus = new HashSet<>();
+
+    /**
+     * Window passed to {@link #prewarm(Window)}, pooled menus created later are warmed up for it
+     */
+    private Window owner;
+    private Tooltip tooltip;
+    private final EventHandler<MouseEvent> tooltipTextHandler = e ->
+            tooltip.setText((String) ((Node) e.getSource()).getProperties().get(TOOLTIP_TEXT_KEY));
+
+    /**
+     * Shows a context menu, all pooled context menus and the shared tooltip once outside the visible screen area.
+     * This creates their skins, applies CSS, lays them out and renders them with their drop shadow.
+     * Context menus pooled afterwards are warmed up the same way when they are created.
+     * @param owner Window the popups are shown for
+     */
+    void prewarm(Window owner) {
+        this.owner = owner;
+        ContextMenu menu = new ContextMenu(new MenuItem("AeroFX"));
+        showOffscreen(menu, owner);
+        for (ContextMenu pooled : contextMenus.values()) {
+            warmUp(pooled);
+        }
+        showOffscreen(getTooltip(), owner);
+    }
+
+    /**
+     * @return The context menu for the key, created by the factory and styled on first use.
+     * After {@link #prewarm(Window)}, a new menu is also laid out and rendered offscreen once
+     */
+    ContextMenu getContextMenu(Object key, Supplier<ContextMenu> factory) {
+        ContextMenu menu = contextMenus.get(key);
+        if (menu == null) {
+            menu = factory.get();
+            contextMenus.put(key, menu);
+            if (owner != null && owner.isShowing())
+                warmUp(menu);
+            else
+                applyCss(menu);
+        }
+        return menu;
+    }
+
+    /**
+     * Removes the context menu of the key from the pool
+     */
+    void releaseContextMenu(Object key) {
+        ContextMenu menu = contextMenus.remove(key);
+        if (menu != null)
+            warmedMenus.remove(menu);
+    }
+
+    private void warmUp(ContextMenu menu) {
+        if (warmedMenus.add(menu))
+            showOffscreen(menu, owner);
+    }
+
+    void installTooltip(Node node, String text) {
+        node.getProperties().put(TOOLTIP_TEXT_KEY, text);
+        node.addEventHandler(MouseEvent.MOUSE_ENTERED, tooltipTextHandler);
+        Tooltip.install(node, getTooltip());
+    }
+
+    void uninstallTooltip(Node node) {
+        node.getProperties().remove(TOOLTIP_TEXT_KEY);
+        node.removeEventHandler(MouseEvent.MOUSE_ENTERED, tooltipTextHandler);
+        Tooltip.uninstall(node, getTooltip());
+    }
+
+    private Tooltip getTooltip() {
+        if (tooltip == null) {
+            tooltip = new Tooltip();
+            applyCss(tooltip);
+        }
+        return tooltip;
+    }
+
+    /**
+     * Creates the skin of the popup and applies the stylesheets without showing it
+     */
+    private static void applyCss(PopupControl popup) {
+        popup.getScene().getRoot().applyCss();
+    }
+
+    private static void showOffscreen(PopupControl popup, Window owner) {
+        boolean autoFix = popup.isAutoFix();
+        popup.setAutoFix(false);
+        popup.show(owner, OFFSCREEN, OFFSCREEN);
+        new AnimationTimer() {
+            private int pulses;
+
+            @Override
+            public void handle(long now) {
+                if (++pulses > WARM_UP_PULSES) {
+                    // Leave it open if it has been shown for real in the meantime
+                    if (popup.getX() == OFFSCREEN && popup.getY() == OFFSCREEN)
+                        popup.hide();
+                    popup.setAutoFix(autoFix);
+                    stop();
+                }
+            }
+        }.start();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx;
+
+import javafx.application.Platform;
+import javafx.scene.Parent;
+import javafx.scene.control.TitledPane;
+import org.aerofx.util.SharedClock;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Collects styling requests from any thread and applies them on the JavaFX Application Thread.
+ * Requests for the same node are merged, requests that a queued ancestor styles anyway are dropped,
+ * and all requests that arrive until the next pulse are applied in a single batch at the start of that pulse,
+ * before its CSS pass.
+ * When the queue is full, the calling thread blocks until the FX thread has caught up.
+ */
+final class StyleQueue {
+    /**
+     * Request to style a single TitledPane as GroupBox
+     */
+    static final int GROUP_BOX = 1;
+
+    /**
+     * Request to style all TitledPanes of a subtree as GroupBoxes
+     */
+    static final int ALL_AS_GROUP_BOX = 2;
+
+    private final Object lock = new Object();
+    private Map<Parent, Integer> pending = new LinkedHashMap<>();
+    private int capacity;
+    private boolean scheduled;
+
+    /**
+     * Drains the queue on the next pulse. Registered through runLater, as the clock belongs to the FX thread
+     */
+    private final LongConsumer drainTick = now -> drain();
+    private final Runnable register = () -> SharedClock.getInstance().add(drainTick);
+
+    StyleQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void setCapacity(int capacity) {
+        synchronized (lock) {
+            this.capacity = capacity;
+            lock.notifyAll();
+        }
+    }
+
+    int getCapacity() {
+        synchronized (lock) {
+            return capacity;
+        }
+    }
+
+    /**
+     * Queues a request. Called on the FX thread, the request is applied immediately.
+     * @param node The TitledPane or the root of the subtree
+     * @param request {@link #GROUP_BOX} or {@link #ALL_AS_GROUP_BOX}
+     */
+    void submit(Parent node, int request) {
+        if (Platform.isFxApplicationThread()) {
+            apply(node, request);
+            return;
+        }
+        synchronized (lock) {
+            boolean interrupted = false;
+            while (pending.size() >= capacity && !pending.containsKey(node)) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    // Keep the request, the caller sees the interrupt flag
+                    interrupted = true;
+                    break;
+                }
+            }
+            pending.merge(node, request, (a, b) -> a | b);
+            if (!scheduled) {
+                scheduled = true;
+                Platform.runLater(register);
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Applies all queued requests as one batch
+     */
+    private void drain() {
+        SharedClock.getInstance().remove(drainTick);
+        Map<Parent, Integer> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            scheduled = false;
+            lock.notifyAll();
+        }
+        for (Map.Entry<Parent, Integer> e : batch.entrySet()) {
+            if (!isCoveredByAncestor(e.getKey(), e.getValue(), batch))
+                apply(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Checks whether the request is done anyway by an ancestor that is queued to have its whole subtree styled.
+     * {@link AeroFX#styleAllAsGroupBox(Parent)} styles a TitledPane but does not descend into it,
+     * so an ancestor does not cover nodes behind a TitledPane, nor a TitledPane's own subtree.
+     * @return Whether the request can be dropped
+     */
+    private static boolean isCoveredByAncestor(Parent node, int request, Map<Parent, Integer> batch) {
+        if ((request & ALL_AS_GROUP_BOX) != 0 && node instanceof TitledPane)
+            return false;
+        for (Parent p = node.getParent(); p != null; p = p.getParent()) {
+            Integer queued = batch.get(p);
+            if (queued != null && (queued & ALL_AS_GROUP_BOX) != 0)
+                return true;
+            if (p instanceof TitledPane)
+                return false;
+        }
+        return false;
+    }
+
+    private static void apply(Parent node, int request) {
+        if ((request & GROUP_BOX) != 0)
+            AeroFX.styleGroupBox((TitledPane) node);
+        if ((request & ALL_AS_GROUP_BOX) != 0)
+            AeroFX.styleAllAsGroupBox(node);
+    }
+}
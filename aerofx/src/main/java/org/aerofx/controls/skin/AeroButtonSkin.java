@@ -34,25 +34,24 @@ import javafx.animation.Animation;
 import javafx.animation.Timeline;
 import javafx.beans.InvalidationListener;
 import javafx.beans.value.ChangeListener;
-import javafx.beans.value.ObservableValue;
 import javafx.css.StyleableProperty;
 import javafx.geometry.Insets;
 import javafx.scene.control.Button;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.CornerRadii;
 import javafx.scene.paint.Color;
-import javafx.scene.paint.CycleMethod;
-import javafx.scene.paint.LinearGradient;
-import javafx.scene.paint.Stop;
 import javafx.scene.shape.Rectangle;
 
-import org.aerofx.util.BindableTransition;
+import org.aerofx.AeroFX;
+import org.aerofx.util.AnimationScheduler;
+import org.aerofx.util.ChromeCache;
+import org.aerofx.util.FractionTransition;
+import org.aerofx.util.GradientInterpolator;
+import org.aerofx.util.InterpolationTable;
 import javafx.util.Duration;
 
-import java.util.ArrayList;
-import java.util.List;
-
 
 /**
  * Custom implementation of the ButtonSkin-class
@@ -61,9 +60,54 @@ import java.util.List;
  */
 public class AeroButtonSkin extends ButtonSkin implements AeroSkin {
 
+    private static final GradientInterpolator FOCUSED_GRADIENT = new GradientInterpolator(
+            new double[] { 0.0, 0.49, 0.5, 1.0 },
+            //starting gradient
+            new Color[] { Color.rgb(242,242,242), Color.rgb(235,235,235), Color.rgb(221,221,221), Color.rgb(207,207,207) },
+            //ending gradient
+            new Color[] { Color.rgb(235,246,252), Color.rgb(229,243,251), Color.rgb(203,232,248), Color.rgb(184,221,242) });
+
+    /**
+     * Number of precomputed backgrounds of the pulse animation, about one per frame of a cycle
+     */
+    private static final int FOCUSED_STEPS = 64;
+
+    /**
+     * The backgrounds of the pulse animation, shared by all buttons
+     */
+    private static final InterpolationTable<Background> FOCUSED_BACKGROUNDS =
+            new InterpolationTable<>(FOCUSED_STEPS, AeroButtonSkin::focusedBackground);
+
     private Rectangle focusBorderRect;
 
-    private BindableTransition focusedButtonTransition;
+    private FractionTransition focusedButtonTransition;
+
+    /**
+     * Asks the scheduler for permission to play the pulse animation
+     */
+    private AnimationScheduler.Handle animationHandle;
+
+    /**
+     * Index of the background currently applied by the animation, -1 if CSS controls the background
+     */
+    private int focusedStep = -1;
+
+    /**
+     * Shows the rasterized background when chrome caching is enabled, null otherwise
+     */
+    private ImageView chromeView;
+
+    /**
+     * The background the chrome image is rendered from
+     */
+    private Background chromeSource;
+
+    /**
+     * Output scale the chrome image is rendered for, updated on layout
+     */
+    private double chromeScale = 1;
+
+    private InvalidationListener backgroundListener;
 
     private ChangeListener<Boolean> focusTabListener;
     private InvalidationListener armedListener;
@@ -73,6 +117,7 @@ public class AeroButtonSkin extends ButtonSkin implements AeroSkin {
      * Constructor that sets up all extra work.
      * It adds a focusRectangle to mimic the Windows-like dotted focus border,
      * as well as a transition for a pulsing background color when button is focused or hover.
+     * The transition is played through the AnimationScheduler, which may show its end state instead.
      * The border is styled by the CSS-class <code>button-focus-border</code>
      */
     public AeroButtonSkin(Button button) {
@@ -81,12 +126,16 @@ public class AeroButtonSkin extends ButtonSkin implements AeroSkin {
         getChildren().add(focusBorderRect);
         focusBorderRect.setVisible(false);
         focusBorderRect.getStyleClass().add("button-focus-border");
+        animationHandle = AnimationScheduler.getInstance().register(button,
+                () -> focusedButtonTransition.play(), this::showFocusedEndState);
         setFocusedButtonAnimation();
+        if(AeroFX.isButtonChromeCached())
+            setChromeCache();
 
         focusTabListener = (observable, oldValue, newValue) -> {
             focusBorderRect.setVisible(newValue);
             if(newValue)
-                focusedButtonTransition.play();
+                animationHandle.request();
             else
                 resetAnimation();
         };
@@ -97,7 +146,7 @@ public class AeroButtonSkin extends ButtonSkin implements AeroSkin {
                 resetAnimation();
             } else {
                 if (getSkinnable().isFocused()) {
-                    focusedButtonTransition.play();
+                    animationHandle.request();
                 } else if (!getSkinnable().isFocused()){
                     resetAnimation();
                 }
@@ -111,7 +160,7 @@ public class AeroButtonSkin extends ButtonSkin implements AeroSkin {
             } else {
                 if(getSkinnable().isFocused()) {
                     focusedButtonTransition.jumpToEnd();
-                    focusedButtonTransition.play();
+                    animationHandle.request();
                 } else if (!getSkinnable().isFocused()){
                     resetAnimation();
                 }
@@ -121,22 +170,76 @@ public class AeroButtonSkin extends ButtonSkin implements AeroSkin {
     }
 
     /**
-     * Override of layoutChildren to resize and position the focus rectangle
+     * Override of layoutChildren to resize and position the focus rectangle and the chrome image
      */
     @Override
     protected void layoutChildren(double x, double y, double w, double h) {
+        // LabeledSkinBase replaces all children when the graphic or content display changes
+        if(focusBorderRect.getParent() == null)
+            getChildren().add(focusBorderRect);
+        if(chromeView != null && chromeView.getParent() == null)
+            getChildren().add(0, chromeView);
         super.layoutChildren(x, y, w, h);
         focusBorderRect.setX(x + 2 - getSkinnable().getPadding().getLeft());
         focusBorderRect.setY(y + 2 - getSkinnable().getPadding().getTop());
         focusBorderRect.setWidth(w - 4 + getSkinnable().getPadding().getRight() + getSkinnable().getPadding().getLeft());
         focusBorderRect.setHeight(h - 4 + getSkinnable().getPadding().getBottom() + getSkinnable().getPadding().getTop());
+        if(chromeView != null) {
+            chromeView.relocate(0, 0);
+            chromeScale = ChromeCache.getOutputScale(getSkinnable());
+            updateChrome();
+        }
+    }
+
+    /**
+     * Switches the button to the cached rendering mode.
+     * Every background set by CSS or the animation is taken over as source of a rasterized image from the shared
+     * {@link ChromeCache} and replaced by an empty background, so identical buttons draw the same image.
+     */
+    private void setChromeCache(){
+        chromeView = new ImageView();
+        chromeView.setManaged(false);
+        getChildren().add(0, chromeView);
+        backgroundListener = observable -> takeOverBackground();
+        getSkinnable().backgroundProperty().addListener(backgroundListener);
+        takeOverBackground();
+    }
+
+    /**
+     * Moves the current background of the button into the chrome image
+     */
+    private void takeOverBackground(){
+        Background background = getSkinnable().getBackground();
+        if(background == null || background.isEmpty())
+            return;
+        chromeSource = background;
+        ((StyleableProperty<Background>)getSkinnable().backgroundProperty()).applyStyle(null, Background.EMPTY);
+        updateChrome();
+    }
+
+    /**
+     * Shows the cached image for the current background, size and output scale
+     */
+    private void updateChrome(){
+        int width = (int) Math.ceil(getSkinnable().getWidth());
+        int height = (int) Math.ceil(getSkinnable().getHeight());
+        if(chromeSource == null || width <= 0 || height <= 0) {
+            chromeView.setImage(null);
+        } else {
+            // On HiDPI screens the image has more pixels than the button has layout units
+            chromeView.setImage(ChromeCache.getShared().get(chromeSource, width, height, chromeScale));
+            chromeView.setFitWidth(width);
+            chromeView.setFitHeight(height);
+        }
     }
 
     /**
      * Resets the animation cycle of the button when called
      */
     private void resetAnimation(){
+        animationHandle.cancel();
         focusedButtonTransition.stop();
+        focusedStep = -1;
         getSkinnable().impl_reapplyCSS();
     }
 
@@ -145,9 +248,10 @@ public class AeroButtonSkin extends ButtonSkin implements AeroSkin {
      * Fine-tuning can be done by changing the main values:
      * <ul>
      *     <li>duration - Time, a single cycle takes</li>
-     *     <li>startColor 1-4 - Colors of the gradient at cycle start</li>
-     *     <li>endColor 1-4 - Colors of the gradient at cycle end</li>
+     *     <li>FOCUSED_GRADIENT - Colors of the gradient at cycle start and end</li>
+     *     <li>FOCUSED_STEPS - Number of distinct backgrounds per cycle</li>
      * </ul>
+     * The backgrounds are precomputed, so a frame only changes the background when the step changes.
      */
     private void setFocusedButtonAnimation(){
         if(!getSkinnable().isDisabled()){
@@ -155,68 +259,73 @@ public class AeroButtonSkin extends ButtonSkin implements AeroSkin {
                 resetAnimation();
             else{
                 final Duration duration = Duration.millis(1000);
-                focusedButtonTransition = new BindableTransition(duration);
+                focusedButtonTransition = new FractionTransition(duration, this::applyFocusedStep);
                 focusedButtonTransition.setCycleCount(Timeline.INDEFINITE);
                 focusedButtonTransition.setAutoReverse(true);
+            }
+        }
+    }
 
-                //starting gradient
-                final Color startColor1 = Color.rgb(242,242,242);
-                final Color startColor2 = Color.rgb(235,235,235);
-                final Color startColor3 = Color.rgb(221,221,221);
-                final Color startColor4 = Color.rgb(207,207,207);
-
-                //ending gradient
-                final Color endColor1 = Color.rgb(235,246,252);
-                final Color endColor2 = Color.rgb(229,243,251);
-                final Color endColor3 = Color.rgb(203,232,248);
-                final Color endColor4 = Color.rgb(184,221,242);
-
-                focusedButtonTransition.fractionProperty().addListener(new ChangeListener<Number>() {
-                    @Override
-                    public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
-                        List<BackgroundFill> list = new ArrayList<>();
-
-                        Stop[] stops = new Stop[] { new Stop(0f, Color.color(
-                                (endColor1.getRed()   - startColor1.getRed())   * newValue.doubleValue() + startColor1.getRed(),
-                                (endColor1.getGreen() - startColor1.getGreen()) * newValue.doubleValue() + startColor1.getGreen(),
-                                (endColor1.getBlue()  - startColor1.getBlue())  * newValue.doubleValue() + startColor1.getBlue())),
-                        new Stop(0.49f, Color.color(
-                                (endColor2.getRed()   - startColor2.getRed())   * newValue.doubleValue() + startColor2.getRed(),
-                                (endColor2.getGreen() - startColor2.getGreen()) * newValue.doubleValue() + startColor2.getGreen(),
-                                (endColor2.getBlue()  - startColor2.getBlue())  * newValue.doubleValue() + startColor2.getBlue())),
-                        new Stop(0.5f, Color.color(
-                                (endColor3.getRed()   - startColor3.getRed())   * newValue.doubleValue() + startColor3.getRed(),
-                                (endColor3.getGreen() - startColor3.getGreen()) * newValue.doubleValue() + startColor3.getGreen(),
-                                (endColor3.getBlue()  - startColor3.getBlue())  * newValue.doubleValue() + startColor3.getBlue())),
-                        new Stop(1f, Color.color(
-                                (endColor4.getRed()   - startColor4.getRed())   * newValue.doubleValue() + startColor4.getRed(),
-                                (endColor4.getGreen() - startColor4.getGreen()) * newValue.doubleValue() + startColor4.getGreen(),
-                                (endColor4.getBlue()  - startColor4.getBlue())  * newValue.doubleValue() + startColor4.getBlue())) };
-
-                        //Build up rectangles
-                        BackgroundFill f1 = new BackgroundFill(Color.rgb(60, 127, 177), new CornerRadii(3.0), new Insets(0.0));
-                        list.add(f1);
-                        BackgroundFill f2 = new BackgroundFill(Color.rgb(72,216,251), new CornerRadii(2.0), new Insets(1.0));
-                        list.add(f2);
-                        LinearGradient gradient = new LinearGradient(0.0,0.0,0.0,1.0,true, CycleMethod.NO_CYCLE,stops);
-                        BackgroundFill bgFill = new BackgroundFill(gradient, new CornerRadii(1.0), new Insets(2.0));
-                        list.add(bgFill);
-
-                        ((StyleableProperty<Background>)getSkinnable().backgroundProperty()).applyStyle(null, new Background(list.get(0), list.get(1), list.get(2)));
-                    }
-                });
+    /**
+     * Creates the background of a focused button at the given point of the pulse animation.
+     * Only used to precompute FOCUSED_BACKGROUNDS when the class is initialized.
+     * @param fraction Animation progress between 0 (start gradient) and 1 (end gradient)
+     * @return The three-layer button background
+     */
+    private static Background focusedBackground(double fraction){
+        //Build up rectangles
+        BackgroundFill f1 = new BackgroundFill(Color.rgb(60, 127, 177), new CornerRadii(3.0), new Insets(0.0));
+        BackgroundFill f2 = new BackgroundFill(Color.rgb(72,216,251), new CornerRadii(2.0), new Insets(1.0));
+        BackgroundFill bgFill = new BackgroundFill(FOCUSED_GRADIENT.createGradient(fraction, 0.0, 0.0, 0.0, 1.0),
+                new CornerRadii(1.0), new Insets(2.0));
+
+        return new Background(f1, f2, bgFill);
+    }
+
+    /**
+     * Applies the precomputed background nearest to the animation fraction
+     * @param fraction Current fraction of the pulse animation
+     */
+    private void applyFocusedStep(double fraction){
+        int step = FOCUSED_BACKGROUNDS.indexOf(fraction);
+        if(step != focusedStep) {
+            focusedStep = step;
+            if(chromeView != null) {
+                chromeSource = FOCUSED_BACKGROUNDS.get(step);
+                updateChrome();
+            } else {
+                ((StyleableProperty<Background>)getSkinnable().backgroundProperty()).applyStyle(null, FOCUSED_BACKGROUNDS.get(step));
             }
         }
     }
 
     /**
-     * Deregisters all listeners
+     * Stops the pulse animation and shows the background at the end of a cycle,
+     * used by the AnimationScheduler when it is over budget
+     */
+    private void showFocusedEndState(){
+        focusedButtonTransition.stop();
+        applyFocusedStep(1.0);
+    }
+
+    /**
+     * Deregisters all listeners and gives the background back to the button if it was cached
      */
     public void dispose() {
+        // SkinBase.dispose() detaches the skin from the button, so clean up first
+        Button button = getSkinnable();
+        button.focusedProperty().removeListener(focusTabListener);
+        button.armedProperty().removeListener(armedListener);
+        button.hoverProperty().removeListener(hoverListener);
+        animationHandle.cancel();
+        if(chromeView != null) {
+            button.backgroundProperty().removeListener(backgroundListener);
+            getChildren().remove(chromeView);
+            chromeView = null;
+            // The background was moved into the image, CSS gives it back to the button
+            button.impl_reapplyCSS();
+        }
         super.dispose();
-        getSkinnable().focusedProperty().removeListener(focusTabListener);
-        getSkinnable().armedProperty().removeListener(armedListener);
-        getSkinnable().hoverProperty().removeListener(hoverListener);
     }
 
 
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.controls.skin;
+
+import com.sun.javafx.scene.control.skin.ProgressBarSkin;
+import javafx.beans.InvalidationListener;
+import javafx.scene.CacheHint;
+import javafx.scene.Node;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.shape.Rectangle;
+import org.aerofx.util.AnimationScheduler;
+import org.aerofx.util.SharedClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Custom implementation of the ProgressBarSkin-class
+ * <p>
+ * Adds the Aero glow that moves over the filled part of the bar.
+ * The glow is a bitmap-cached node that is only translated inside a clipped container, driven by the {@link SharedClock},
+ * so all bars on screen move in sync and a frame does not allocate.
+ * The glow is played through the AnimationScheduler, which hides it when the animation budget is exceeded.
+ * The glow is styled by the CSS-class <code>glow</code> inside the container <code>glow-pane</code>.
+ * To update the progress from other threads, use <code>org.aerofx.util.ThrottledProgress</code>.
+ * </p>
+ */
+public class AeroProgressBarSkin extends ProgressBarSkin implements AeroSkin {
+
+    /**
+     * Time the glow takes to cross the bar
+     */
+    private static final long GLOW_PERIOD_NANOS = 2_500_000_000L;
+
+    /**
+     * Width of the glow relative to the track
+     */
+    private static final double GLOW_WIDTH = 0.3;
+
+    private Pane glowPane;
+    private Region glow;
+    private Rectangle glowClip;
+    private double filledWidth;
+    private boolean glowing;
+
+    private LongConsumer glowTick;
+    private AnimationScheduler.Handle animationHandle;
+    private InvalidationListener glowStateListener;
+
+    /**
+     * The bar and its ancestors, watched because a hidden parent hides the bar as well, e.g. on an unselected tab
+     */
+    private final List<Node> watchedNodes = new ArrayList<>();
+    private InvalidationListener treeListener;
+
+    /**
+     * Sets up the glow and requests it from the AnimationScheduler while the bar shows progress
+     */
+    public AeroProgressBarSkin(ProgressBar progressBar) {
+        super(progressBar);
+        glow = new Region();
+        glow.getStyleClass().add("glow");
+        glow.setManaged(false);
+        glow.setCache(true);
+        glow.setCacheHint(CacheHint.SPEED);
+        glowClip = new Rectangle();
+        glowPane = new Pane(glow);
+        glowPane.getStyleClass().add("glow-pane");
+        glowPane.setManaged(false);
+        glowPane.setMouseTransparent(true);
+        glowPane.setClip(glowClip);
+        glowPane.setVisible(false);
+        getChildren().add(glowPane);
+
+        animationHandle = AnimationScheduler.getInstance().register(progressBar, this::startGlow, this::stopGlow);
+        glowTick = now -> {
+            double phase = (now % GLOW_PERIOD_NANOS) / (double) GLOW_PERIOD_NANOS;
+            glow.setTranslateX(phase * (filledWidth + glow.getWidth()) - glow.getWidth());
+        };
+
+        glowStateListener = observable -> {
+            // ProgressBarSkin recreates its children when switching to and from indeterminate
+            if(!getChildren().contains(glowPane))
+                getChildren().add(glowPane);
+            updateGlow();
+        };
+        progressBar.indeterminateProperty().addListener(glowStateListener);
+        progressBar.progressProperty().addListener(glowStateListener);
+        progressBar.sceneProperty().addListener(glowStateListener);
+        treeListener = observable -> {
+            watchTree();
+            updateGlow();
+        };
+        watchTree();
+        updateGlow();
+    }
+
+    /**
+     * Override of layoutChildren to size the glow and its clip to the filled part of the bar
+     */
+    @Override
+    protected void layoutChildren(double x, double y, double w, double h) {
+        super.layoutChildren(x, y, w, h);
+        double progress = getSkinnable().getProgress();
+        filledWidth = getSkinnable().isIndeterminate() ? 0 : w * Math.min(1, Math.max(0, progress));
+        glowPane.resizeRelocate(x, y, w, h);
+        glow.resize(Math.round(w * GLOW_WIDTH), h);
+        glowClip.setWidth(filledWidth);
+        glowClip.setHeight(h);
+    }
+
+    /**
+     * Requests or cancels the glow depending on the state of the bar.
+     * Only bars that are actually showing take a slot of the AnimationScheduler
+     */
+    private void updateGlow(){
+        ProgressIndicator bar = getSkinnable();
+        boolean show = !bar.isIndeterminate() && bar.getProgress() > 0 && bar.getScene() != null && isTreeVisible();
+        if(show && !glowing) {
+            glowing = true;
+            animationHandle.request();
+        } else if(!show && glowing) {
+            glowing = false;
+            animationHandle.cancel();
+            stopGlow();
+        }
+    }
+
+    /**
+     * @return Whether the bar and all of its parents are visible
+     */
+    private boolean isTreeVisible(){
+        for(Node n = getSkinnable(); n != null; n = n.getParent()) {
+            if(!n.isVisible())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Listens to the visibility and the parent of the bar and its current ancestors
+     */
+    private void watchTree(){
+        unwatchTree();
+        for(Node n = getSkinnable(); n != null; n = n.getParent()) {
+            n.visibleProperty().addListener(treeListener);
+            n.parentProperty().addListener(treeListener);
+            watchedNodes.add(n);
+        }
+    }
+
+    private void unwatchTree(){
+        for(Node n : watchedNodes) {
+            n.visibleProperty().removeListener(treeListener);
+            n.parentProperty().removeListener(treeListener);
+        }
+        watchedNodes.clear();
+    }
+
+    private void startGlow(){
+        glowPane.setVisible(true);
+        SharedClock.getInstance().add(glowTick);
+    }
+
+    /**
+     * Removes the glow, which is also the static end state when the scheduler degrades the animation
+     */
+    private void stopGlow(){
+        SharedClock.getInstance().remove(glowTick);
+        glowPane.setVisible(false);
+    }
+
+    /**
+     * Deregisters all listeners
+     */
+    @Override
+    public void dispose() {
+        ProgressIndicator bar = getSkinnable();
+        bar.indeterminateProperty().removeListener(glowStateListener);
+        bar.progressProperty().removeListener(glowStateListener);
+        bar.sceneProperty().removeListener(glowStateListener);
+        unwatchTree();
+        if(glowing) {
+            animationHandle.cancel();
+            stopGlow();
+        }
+        glowing = false;
+        super.dispose();
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.util;
+
+import com.sun.javafx.tk.TKPulseListener;
+import com.sun.javafx.tk.Toolkit;
+import javafx.scene.Node;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Limits the animations of the Aero skins that run at the same time.
+ * <p>
+ * A skin registers each of its animations and asks for permission to play it through its {@link Handle}.
+ * At most {@link #getMaxConcurrent()} animations run at once. If the scene pass of a pulse (CSS, layout and
+ * synchronization with the renderer, which is where animated nodes cost most) exceeds the frame budget,
+ * the animation with the lowest priority is degraded as well. Rendering itself happens on the render thread and is not measured.
+ * A degraded animation is stopped and shows its static end state; it resumes when there is room again.
+ * Animations of the focused control always come first.
+ * </p>
+ * Only to be used on the JavaFX Application Thread.
+ */
+public final class AnimationScheduler {
+
+    private static final AnimationScheduler INSTANCE = new AnimationScheduler();
+
+    /**
+     * Added to the priority of animations whose owner is focused
+     */
+    private static final int FOCUSED_PRIORITY = 1 << 20;
+
+    private int maxConcurrent = 16;
+    private long frameBudgetNanos = 8_000_000L;
+
+    private final List<Handle> running = new ArrayList<>();
+    private final List<Handle> degraded = new ArrayList<>();
+    private long pulseStart;
+    private long pulseNanos;
+    private boolean ticking;
+    private final LongConsumer tick = now -> endFrame();
+
+    // Stage pulse listeners run before the scene pass, post-scene listeners after it
+    private final TKPulseListener pulseStartListener = () -> pulseStart = System.nanoTime();
+    private final TKPulseListener pulseEndListener = () -> pulseNanos = System.nanoTime() - pulseStart;
+
+    private AnimationScheduler() {}
+
+    /**
+     * @return The scheduler shared by all Aero skins
+     */
+    public static AnimationScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers an animation
+     * @param owner Control the animation belongs to, used to prioritize the focused control
+     * @param start Starts or resumes the animation
+     * @param degrade Stops the animation and shows its static end state
+     * @return Handle to request and cancel the animation
+     */
+    public Handle register(Node owner, Runnable start, Runnable degrade) {
+        return new Handle(owner, start, degrade);
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Sets how many animations may run at once. Animations over the new limit are degraded
+     * @param maxConcurrent Maximum number of running animations, at least 1
+     */
+    public void setMaxConcurrent(int maxConcurrent) {
+        if (maxConcurrent < 1)
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        this.maxConcurrent = maxConcurrent;
+        while (running.size() > maxConcurrent)
+            degrade(lowest(running));
+    }
+
+    public Duration getFrameBudget() {
+        return Duration.millis(frameBudgetNanos / 1e6);
+    }
+
+    /**
+     * @param budget Time the scene pass of a pulse may take before animations are degraded
+     */
+    public void setFrameBudget(Duration budget) {
+        frameBudgetNanos = (long) (budget.toMillis() * 1e6);
+    }
+
+    /**
+     * @return Number of animations that are currently running
+     */
+    public int getRunningCount() {
+        return running.size();
+    }
+
+    /**
+     * @return Number of animations that want to run but are shown in their end state
+     */
+    public int getDegradedCount() {
+        return degraded.size();
+    }
+
+    /**
+     * Called once per pulse while animations are registered, before the scene pass of that pulse.
+     * Degrades one animation if the last pulse was over budget, resumes one if it was well below.
+     */
+    private void endFrame() {
+        long last = pulseNanos;
+        if (last > frameBudgetNanos && running.size() > 1) {
+            degrade(lowest(running));
+        } else if (last < frameBudgetNanos / 2 && !degraded.isEmpty() && running.size() < maxConcurrent) {
+            start(highest(degraded));
+        }
+    }
+
+    private void start(Handle h) {
+        degraded.remove(h);
+        running.add(h);
+        updateTicking();
+        h.start.run();
+    }
+
+    private void degrade(Handle h) {
+        running.remove(h);
+        degraded.add(h);
+        updateTicking();
+        h.degrade.run();
+    }
+
+    private void updateTicking() {
+        boolean needed = !running.isEmpty() || !degraded.isEmpty();
+        if (needed && !ticking) {
+            pulseNanos = 0;
+            SharedClock.getInstance().add(tick);
+            Toolkit.getToolkit().addStageTkPulseListener(pulseStartListener);
+            Toolkit.getToolkit().addPostSceneTkPulseListener(pulseEndListener);
+        } else if (!needed && ticking) {
+            SharedClock.getInstance().remove(tick);
+            Toolkit.getToolkit().removeStageTkPulseListener(pulseStartListener);
+            Toolkit.getToolkit().removePostSceneTkPulseListener(pulseEndListener);
+        }
+        ticking = needed;
+    }
+
+    private static Handle lowest(List<Handle> handles) {
+        Handle lowest = handles.get(0);
+        for (int i = 1; i < handles.size(); i++) {
+            if (handles.get(i).effectivePriority() < lowest.effectivePriority())
+                lowest = handles.get(i);
+        }
+        return lowest;
+    }
+
+    private static Handle highest(List<Handle> handles) {
+        Handle highest = handles.get(0);
+        for (int i = 1; i < handles.size(); i++) {
+            if (handles.get(i).effectivePriority() > highest.effectivePriority())
+                highest = handles.get(i);
+        }
+        return highest;
+    }
+
+    /**
+     * An animation registered with the scheduler
+     */
+    public final class Handle {
+        private final Node owner;
+        private final Runnable start;
+        private final Runnable degrade;
+        private int priority;
+
+        private Handle(Node owner, Runnable start, Runnable degrade) {
+            this.owner = owner;
+            this.start = start;
+            this.degrade = degrade;
+        }
+
+        /**
+         * Asks to play the animation. It is either started right away or shown in its end state until there is room
+         */
+        public void request() {
+            if (running.contains(this) || degraded.contains(this))
+                return;
+            if (running.size() < maxConcurrent) {
+                start(this);
+                return;
+            }
+            Handle lowest = lowest(running);
+            if (lowest.effectivePriority() < effectivePriority()) {
+                degrade(lowest);
+                start(this);
+            } else {
+                degrade(this);
+            }
+        }
+
+        /**
+         * Withdraws the animation. The skin stops it itself, the freed slot goes to the most important degraded animation
+         */
+        public void cancel() {
+            boolean wasRunning = running.remove(this);
+            degraded.remove(this);
+            if (wasRunning && !degraded.isEmpty())
+                start(highest(degraded));
+            updateTicking();
+        }
+
+        public boolean isRunning() {
+            return running.contains(this);
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * @param priority Animations with higher priority are degraded last
+         */
+        public void setPriority(int priority) {
+            this.priority = priority;
+        }
+
+        private int effectivePriority() {
+            return owner.isFocused() ? priority + FOCUSED_PRIORITY : priority;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.util;
+
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.Image;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+import javafx.stage.Screen;
+import javafx.stage.Window;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache of backgrounds rasterized into images, keyed by background, size and output scale.
+ * Controls of the same size in the same state share one image, so the renderer
+ * keeps a single texture for them instead of painting every layer of every control.
+ * The background identifies the state as well as the animation step,
+ * as JavaFX resolves equal CSS backgrounds to equal Background objects.
+ * On HiDPI screens the images are rendered at the output scale of the screen, so they stay sharp
+ * when shown at their size in layout units.
+ * Images are evicted in least recently used order when the memory budget is exceeded.
+ * All methods have to be called on the JavaFX Application Thread.
+ */
+public class ChromeCache {
+
+    /**
+     * Default memory budget of 16 MB
+     */
+    private static final long DEFAULT_BUDGET = 16L * 1024 * 1024;
+
+    private static final ChromeCache SHARED = new ChromeCache(DEFAULT_BUDGET);
+
+    private final Map<Key, Image> images = new LinkedHashMap<>(64, 0.75f, true);
+    private final SnapshotParameters snapshotParameters = new SnapshotParameters();
+    private Region renderer;
+    private long memoryBudget;
+    private long usedBytes;
+
+    /**
+     * @param memoryBudget Maximum number of bytes the cached images may occupy
+     */
+    public ChromeCache(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        snapshotParameters.setFill(Color.TRANSPARENT);
+    }
+
+    /**
+     * @return The cache shared by all Aero skins
+     */
+    public static ChromeCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the rasterized background for an output scale of 1, rendering it if it is not cached yet
+     * @param background Background to be rasterized
+     * @param width Width in pixels
+     * @param height Height in pixels
+     * @return Image of the background
+     */
+    public Image get(Background background, int width, int height) {
+        return get(background, width, height, 1);
+    }
+
+    /**
+     * Returns the rasterized background, rendering it if it is not cached yet
+     * @param background Background to be rasterized
+     * @param width Width in layout units
+     * @param height Height in layout units
+     * @param scale Output scale of the screen, see {@link #getOutputScale(Node)}
+     * @return Image of the background with <code>scale</code> times the given size in pixels
+     */
+    public Image get(Background background, int width, int height, double scale) {
+        Key key = new Key(background, width, height, scale);
+        Image image = images.get(key);
+        if (image == null) {
+            image = rasterize(background, width, height, scale);
+            images.put(key, image);
+            usedBytes += bytes(image);
+            evict();
+        }
+        return image;
+    }
+
+    /**
+     * @param node A node in a window
+     * @return The render scale of the screen the node's window is on, 1 if it is not in a window
+     */
+    public static double getOutputScale(Node node) {
+        Scene scene = node.getScene();
+        Window window = scene != null ? scene.getWindow() : null;
+        if (window == null)
+            return 1;
+        List<Screen> screens = Screen.getScreensForRectangle(window.getX(), window.getY(), window.getWidth(), window.getHeight());
+        Screen screen = screens.isEmpty() ? Screen.getPrimary() : screens.get(0);
+        return screen.impl_getRenderScale();
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Changes the memory budget and evicts images that no longer fit
+     * @param memoryBudget Maximum number of bytes the cached images may occupy
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        evict();
+    }
+
+    /**
+     * @return Estimated number of bytes occupied by the cached images
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Removes all cached images
+     */
+    public void clear() {
+        images.clear();
+        usedBytes = 0;
+    }
+
+    private Image rasterize(Background background, int width, int height, double scale) {
+        if (renderer == null)
+            renderer = new Region();
+        renderer.setBackground(background);
+        renderer.resize(width, height);
+        snapshotParameters.setTransform(scale == 1 ? null : Transform.scale(scale, scale));
+        Image image = renderer.snapshot(snapshotParameters, null);
+        renderer.setBackground(null);
+        return image;
+    }
+
+    /**
+     * Evicts the least recently used images until the budget is met, keeping at least the newest one
+     */
+    private void evict() {
+        // Iterates the entries, a get() would reorder the access-ordered map
+        Iterator<Map.Entry<Key, Image>> it = images.entrySet().iterator();
+        while (usedBytes > memoryBudget && images.size() > 1 && it.hasNext()) {
+            usedBytes -= bytes(it.next().getValue());
+            it.remove();
+        }
+    }
+
+    private static long bytes(Image image) {
+        return 4L * (long) image.getWidth() * (long) image.getHeight();
+    }
+
+    private static final class Key {
+        private final Background background;
+        private final int width;
+        private final int height;
+        private final double scale;
+
+        Key(Background background, int width, int height, double scale) {
+            this.background = background;
+            this.width = width;
+            this.height = height;
+            this.scale = scale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return width == key.width && height == key.height && scale == key.scale && background.equals(key.background);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * background.hashCode() + width) + height) + Double.hashCode(scale);
+        }
+    }
+}
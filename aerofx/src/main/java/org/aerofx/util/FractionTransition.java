@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.util;
+
+import javafx.animation.Interpolator;
+import javafx.animation.Transition;
+import javafx.util.Duration;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * A Transition that passes its fraction straight to a primitive callback.
+ * Unlike {@link BindableTransition}, there is no property in between,
+ * so a frame neither boxes the fraction nor notifies any listeners.
+ * The easing curve is the Interpolator of the Transition and can be replaced at any time.
+ */
+public class FractionTransition extends Transition {
+
+    private final DoubleConsumer onFraction;
+
+    /**
+     * Creates a transition with the default easing (ease both)
+     * @param duration Time a single cycle takes
+     * @param onFraction Called with the eased fraction on every frame
+     */
+    public FractionTransition(Duration duration, DoubleConsumer onFraction) {
+        this.onFraction = onFraction;
+        setCycleDuration(duration);
+    }
+
+    /**
+     * Creates a transition with the given easing
+     * @param duration Time a single cycle takes
+     * @param easing Interpolator that maps the elapsed time to the fraction
+     * @param onFraction Called with the eased fraction on every frame
+     */
+    public FractionTransition(Duration duration, Interpolator easing, DoubleConsumer onFraction) {
+        this(duration, onFraction);
+        setInterpolator(easing);
+    }
+
+    @Override
+    protected final void interpolate(double frac) {
+        onFraction.accept(frac);
+    }
+
+    public void jumpToEnd() {
+        jumpTo(getCycleDuration());
+    }
+}
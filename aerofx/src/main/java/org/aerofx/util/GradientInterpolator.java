@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.util;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Stop;
+
+/**
+ * Interpolates the stops of a gradient between a start and an end set of colors.
+ * {@link #interpolate(double, double[])} writes into a caller-provided buffer and does not allocate.
+ */
+public class GradientInterpolator {
+
+    private final double[] offsets;
+    private final double[] start;
+    private final double[] end;
+
+    /**
+     * @param offsets Offsets of the gradient stops, between 0 and 1
+     * @param startColors Colors of the stops at fraction 0
+     * @param endColors Colors of the stops at fraction 1
+     */
+    public GradientInterpolator(double[] offsets, Color[] startColors, Color[] endColors) {
+        if (offsets.length != startColors.length || offsets.length != endColors.length)
+            throw new IllegalArgumentException("offsets, startColors and endColors must have the same length");
+        this.offsets = offsets.clone();
+        this.start = toComponents(startColors);
+        this.end = toComponents(endColors);
+    }
+
+    /**
+     * @return Number of stops of the gradient
+     */
+    public int getStopCount() {
+        return offsets.length;
+    }
+
+    /**
+     * @return Length a buffer passed to {@link #interpolate(double, double[])} must have
+     */
+    public int getBufferLength() {
+        return start.length;
+    }
+
+    /**
+     * Writes the interpolated colors into the buffer as red, green, blue and opacity for each stop.
+     * @param fraction Position between the start (0) and the end colors (1)
+     * @param buffer Buffer of at least {@link #getBufferLength()} elements
+     */
+    public void interpolate(double fraction, double[] buffer) {
+        for (int i = 0; i < start.length; i++) {
+            buffer[i] = (end[i] - start[i]) * fraction + start[i];
+        }
+    }
+
+    /**
+     * Creates the gradient at the given fraction. This allocates the paint
+     * and is meant for precomputing, e.g. together with an {@link InterpolationTable}.
+     * @param fraction Position between the start (0) and the end colors (1)
+     * @return Proportional, non-cycling gradient from (startX, startY) to (endX, endY)
+     */
+    public LinearGradient createGradient(double fraction, double startX, double startY, double endX, double endY) {
+        double[] buffer = new double[getBufferLength()];
+        interpolate(fraction, buffer);
+        Stop[] stops = new Stop[offsets.length];
+        for (int i = 0; i < stops.length; i++) {
+            stops[i] = new Stop(offsets[i], Color.color(
+                    clamp(buffer[i * 4]), clamp(buffer[i * 4 + 1]), clamp(buffer[i * 4 + 2]), clamp(buffer[i * 4 + 3])));
+        }
+        return new LinearGradient(startX, startY, endX, endY, true, CycleMethod.NO_CYCLE, stops);
+    }
+
+    private static double[] toComponents(Color[] colors) {
+        double[] components = new double[colors.length * 4];
+        for (int i = 0; i < colors.length; i++) {
+            components[i * 4] = colors[i].getRed();
+            components[i * 4 + 1] = colors[i].getGreen();
+            components[i * 4 + 2] = colors[i].getBlue();
+            components[i * 4 + 3] = colors[i].getOpacity();
+        }
+        return components;
+    }
+
+    private static double clamp(double value) {
+        return value < 0 ? 0 : value > 1 ? 1 : value;
+    }
+}
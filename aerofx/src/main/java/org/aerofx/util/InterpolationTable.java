@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.util;
+
+import java.util.function.DoubleFunction;
+
+/**
+ * A fixed number of precomputed values for fractions between 0 and 1.
+ * JavaFX paints and backgrounds are immutable, so an animation that looks them up here
+ * instead of creating them on every frame runs without allocation.
+ * The values can be shared by all nodes that play the same animation.
+ *
+ * @param <T> Type of the values
+ */
+public class InterpolationTable<T> {
+
+    private final Object[] values;
+
+    /**
+     * @param steps Number of values, at least 2
+     * @param factory Creates the value for a fraction
+     */
+    public InterpolationTable(int steps, DoubleFunction<? extends T> factory) {
+        if (steps < 2)
+            throw new IllegalArgumentException("steps must be at least 2");
+        values = new Object[steps];
+        for (int i = 0; i < steps; i++) {
+            values[i] = factory.apply(i / (double) (steps - 1));
+        }
+    }
+
+    /**
+     * @return Number of precomputed values
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @param fraction Fraction between 0 and 1, values outside are clamped
+     * @return Index of the value nearest to the fraction
+     */
+    public int indexOf(double fraction) {
+        if (fraction <= 0)
+            return 0;
+        if (fraction >= 1)
+            return values.length - 1;
+        return (int) Math.round(fraction * (values.length - 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) values[index];
+    }
+
+    /**
+     * @param fraction Fraction between 0 and 1, values outside are clamped
+     * @return The value nearest to the fraction
+     */
+    public T get(double fraction) {
+        return get(indexOf(fraction));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.util;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A single AnimationTimer that drives any number of listeners once per pulse.
+ * Listeners get the pulse timestamp in nanoseconds, so all of them animate in sync.
+ * The timer only runs while listeners are registered, and a tick does not allocate.
+ * Only to be used on the JavaFX Application Thread.
+ */
+public final class SharedClock {
+
+    private static final SharedClock INSTANCE = new SharedClock();
+
+    /**
+     * Copied on every change, so listeners can be added or removed during a tick
+     */
+    private LongConsumer[] listeners = new LongConsumer[0];
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            LongConsumer[] current = listeners;
+            for (int i = 0; i < current.length; i++) {
+                current[i].accept(now);
+            }
+        }
+    };
+
+    private SharedClock() {}
+
+    /**
+     * @return The clock shared by all Aero skins
+     */
+    public static SharedClock getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers a listener, which is called on every pulse from now on
+     * @param listener Receives the pulse timestamp in nanoseconds
+     */
+    public void add(LongConsumer listener) {
+        LongConsumer[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+        if (updated.length == 1)
+            timer.start();
+    }
+
+    /**
+     * Unregisters a listener, the clock stops when no listeners are left
+     * @param listener Listener to be removed
+     */
+    public void remove(LongConsumer listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                LongConsumer[] updated = new LongConsumer[listeners.length - 1];
+                System.arraycopy(listeners, 0, updated, 0, i);
+                System.arraycopy(listeners, i + 1, updated, i, listeners.length - i - 1);
+                listeners = updated;
+                if (updated.length == 0)
+                    timer.stop();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Number of registered listeners
+     */
+    public int getListenerCount() {
+        return listeners.length;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014, Matthias Meidinger
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+
+package org.aerofx.util;
+
+import javafx.application.Platform;
+import javafx.scene.control.ProgressIndicator;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+/**
+ * Passes progress values from any thread to a ProgressBar or ProgressIndicator, at most once per pulse.
+ * Worker threads can report every step, only the latest value is shown
+ * and the FX thread is not flooded with one <code>Platform.runLater</code> per update.
+ * All instances share one {@link SharedClock} listener, which applies the changed ones on each pulse
+ * and stays registered while updates keep coming in.
+ */
+public class ThrottledProgress {
+
+    /**
+     * Instances whose latest value has not been applied yet
+     */
+    private static final Queue<ThrottledProgress> DIRTY = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether the drain is registered with the clock, or about to be
+     */
+    private static final AtomicBoolean DRAIN_SCHEDULED = new AtomicBoolean();
+
+    private static final LongConsumer DRAIN = ThrottledProgress::drain;
+    private static final Runnable REGISTER = () -> SharedClock.getInstance().add(DRAIN);
+
+    private final ProgressIndicator indicator;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile double pending;
+
+    /**
+     * Timestamp of the pulse that last applied this instance, only used on the FX thread
+     */
+    private long appliedPulse = Long.MIN_VALUE;
+
+    /**
+     * @param indicator ProgressBar or ProgressIndicator that shows the progress
+     */
+    public ThrottledProgress(ProgressIndicator indicator) {
+        this.indicator = indicator;
+        this.pending = indicator.getProgress();
+    }
+
+    /**
+     * Sets the progress, shown with the next pulse. Can be called from any thread.
+     * @param progress Progress between 0 and 1, or a negative value for indeterminate
+     */
+    public void set(double progress) {
+        pending = progress;
+        if (scheduled.compareAndSet(false, true)) {
+            DIRTY.add(this);
+            if (DRAIN_SCHEDULED.compareAndSet(false, true))
+                Platform.runLater(REGISTER);
+        }
+    }
+
+    /**
+     * Applies all instances that changed before this pulse. The drain leaves the clock after a pulse without changes
+     * @param now Timestamp of the pulse
+     */
+    private static void drain(long now) {
+        ThrottledProgress p = DIRTY.poll();
+        if (p != null) {
+            do {
+                if (p.appliedPulse == now) {
+                    // Changed again while draining, everything queued before is done
+                    DIRTY.add(p);
+                    return;
+                }
+                p.appliedPulse = now;
+                p.apply();
+                p = DIRTY.poll();
+            } while (p != null);
+            return;
+        }
+        SharedClock.getInstance().remove(DRAIN);
+        DRAIN_SCHEDULED.set(false);
+        // An instance queued before the flag was cleared did not schedule the drain again
+        if (!DIRTY.isEmpty() && DRAIN_SCHEDULED.compareAndSet(false, true))
+            SharedClock.getInstance().add(DRAIN);
+    }
+
+    private void apply() {
+        // Cleared before reading, so a value set in between queues the instance again
+        scheduled.set(false);
+        indicator.setProgress(pending);
+    }
+}